@@ -11,5 +11,6 @@ dependencies {
     implementation(files(libs.javaClass.superclass.protectionDomain.codeSource.location))
     libs.versions.apply {
         implementation("net.fabricmc:fabric-loom:" + fabric.loom.get())
+        implementation("me.champeau.jmh:jmh-gradle-plugin:" + jmh.gradle.get())
     }
 }
@@ -0,0 +1,21 @@
+val libs = the<org.gradle.accessors.dm.LibrariesForLibs>()
+
+plugins {
+    `java-library`
+    id("fabric-loom")
+    id("me.champeau.jmh")
+}
+
+sourceSets.named("jmh") {
+    compileClasspath += sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().runtimeClasspath
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.core)
+    includeTests.set(false)
+    // Allocation per operation is reported as gc.alloc.rate.norm
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
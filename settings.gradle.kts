@@ -11,7 +11,7 @@ rootProject.name = "littlethings"
 
 thing("annotations")
 thing("assertions", "processor")
-thing("facets")
+thing("facets", "processor")
 thing("json-commands")
 thing("todo")
 
@@ -1,6 +1,22 @@
 plugins {
     id("littlethings.conventions")
     id("littlethings.testmod")
+    id("littlethings.jmh")
+    kotlin("jvm") version "1.9.22"
+    id("com.google.devtools.ksp") version "1.9.22-1.0.16"
 }
 
 version = "0.5.0"
+
+dependencies {
+    "kspTestmod"(project(":$name:processor"))
+    "kspTest"(project(":$name:processor"))
+}
+
+tasks.register<JavaExec>("scanWorld") {
+    group = "application"
+    description = "Scans the saved files of a world for facet data without starting a server."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("dev.denimred.littlethings.facets.FacetWorldScanner")
+    providers.gradleProperty("scanArgs").orNull?.let { args(it.split(" ")) }
+}
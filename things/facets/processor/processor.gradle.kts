@@ -0,0 +1,5 @@
+plugins { kotlin("jvm") version "1.9.22"}
+
+repositories { mavenCentral() }
+
+dependencies { implementation("com.google.devtools.ksp:symbol-processing-api:1.9.22-1.0.16") }
@@ -0,0 +1,93 @@
+import com.google.devtools.ksp.getDeclaredFunctions
+import com.google.devtools.ksp.processing.*
+import com.google.devtools.ksp.symbol.ClassKind
+import com.google.devtools.ksp.symbol.KSAnnotated
+import com.google.devtools.ksp.symbol.KSAnnotation
+import com.google.devtools.ksp.symbol.KSClassDeclaration
+import com.google.devtools.ksp.symbol.KSFunctionDeclaration
+import com.google.devtools.ksp.validate
+import org.intellij.lang.annotations.Language
+import java.io.OutputStream
+
+private const val SCHEMA = "dev.denimred.littlethings.facets.FacetSchema"
+private const val KEY = "$SCHEMA.Key"
+
+private fun OutputStream.write(@Language("java") str: String) = use { it.write(str.toByteArray()) }
+
+data class PreparedFacet(val method: String, val key: String, val type: FacetType)
+
+private class SchemaProcessor(private val gen: CodeGenerator, private val logger: KSPLogger) : SymbolProcessor {
+    override fun process(resolver: Resolver): List<KSAnnotated> {
+        val (valid, deferred) = resolver.getSymbolsWithAnnotation(SCHEMA).partition { it.validate() }
+        for (symbol in valid) {
+            if (symbol is KSClassDeclaration && symbol.classKind == ClassKind.INTERFACE) generate(symbol)
+            else logger.error("Facet schemas must be interfaces", symbol)
+        }
+        return deferred
+    }
+
+    private fun generate(schema: KSClassDeclaration) {
+        val annotation = schema.findAnnotation(SCHEMA) ?: return
+        val file = schema.containingFile ?: return
+        val pkg = schema.packageName.asString()
+        val path = (annotation.argument("value") as? List<*>).orEmpty().map { it.toString() }
+        val clazz = (annotation.argument("className") as? String).orEmpty().ifEmpty { "${schema.simpleName.asString()}Facets" }
+
+        val facets = schema.getDeclaredFunctions().filter { it.isAbstract }.mapNotNull(::prepare).toList()
+        val duplicates = facets.groupBy { it.key }.filterValues { it.size > 1 }.keys
+        if (duplicates.isNotEmpty()) return logger.error("Duplicate facet names in schema: ${duplicates.joinToString()}", schema)
+
+        gen.createNewFile(Dependencies(false, file), pkg, clazz, "java").write("""
+            ${if (pkg.isNotEmpty()) "package $pkg;" else ""}
+
+            import dev.denimred.littlethings.facets.*;
+            import net.minecraft.nbt.*;
+            import net.minecraft.world.item.ItemStack;
+            import org.jetbrains.annotations.Contract;
+            import org.jetbrains.annotations.Nullable;
+
+            /**
+             * Typed accessors for the facets declared by {@link ${schema.simpleName.asString()}}.
+             */
+            public final class $clazz {
+                ${applyConstantTemplates(path, facets)}
+
+                private $clazz() {
+                    throw new AssertionError();
+                }
+
+                ${applyPathTemplates(path)}
+
+                ${applyAccessorTemplates(facets)}
+            }
+
+        """.trimIndent())
+    }
+
+    private fun prepare(function: KSFunctionDeclaration): PreparedFacet? {
+        val method = function.simpleName.asString()
+        if (function.parameters.isNotEmpty()) {
+            logger.error("Schema methods can't have parameters", function)
+            return null
+        }
+        val typeName = function.returnType?.resolve()?.declaration?.qualifiedName?.asString()
+        val type = FACET_TYPES[typeName]
+        if (type == null) {
+            logger.error("Unsupported facet type $typeName, expected a primitive type or String", function)
+            return null
+        }
+        val key = function.findAnnotation(KEY)?.argument("value") as? String ?: method
+        return PreparedFacet(method, key, type)
+    }
+}
+
+private fun KSAnnotated.findAnnotation(name: String) =
+    annotations.firstOrNull { it.annotationType.resolve().declaration.qualifiedName?.asString() == name }
+
+private fun KSAnnotation.argument(name: String) = arguments.firstOrNull { it.name?.asString() == name }?.value
+
+class SchemaProcessorProvider : SymbolProcessorProvider {
+    override fun create(environment: SymbolProcessorEnvironment): SymbolProcessor {
+        return SchemaProcessor(environment.codeGenerator, environment.logger)
+    }
+}
@@ -0,0 +1,144 @@
+import org.intellij.lang.annotations.Language
+
+data class FacetType(
+    val type: String,
+    val facetClass: String,
+    val factory: String,
+    val tagClass: String,
+    val readExpr: String,
+    val putMethod: String,
+    val primitive: Boolean = true,
+)
+
+val FACET_TYPES = mapOf(
+    "kotlin.Boolean" to FacetType("boolean", "BooleanFacet", "booleanFacet", "ByteTag", "tag.getAsByte() != 0", "putBoolean"),
+    "kotlin.Byte" to FacetType("byte", "Facet<Byte>", "byteFacet", "ByteTag", "tag.getAsByte()", "putByte"),
+    "kotlin.Short" to FacetType("short", "Facet<Short>", "shortFacet", "ShortTag", "tag.getAsShort()", "putShort"),
+    "kotlin.Int" to FacetType("int", "IntFacet", "intFacet", "IntTag", "tag.getAsInt()", "putInt"),
+    "kotlin.Long" to FacetType("long", "LongFacet", "longFacet", "LongTag", "tag.getAsLong()", "putLong"),
+    "kotlin.Float" to FacetType("float", "FloatFacet", "floatFacet", "FloatTag", "tag.getAsFloat()", "putFloat"),
+    "kotlin.Double" to FacetType("double", "DoubleFacet", "doubleFacet", "DoubleTag", "tag.getAsDouble()", "putDouble"),
+    "kotlin.String" to FacetType("String", "Facet<String>", "stringFacet", "StringTag", "tag.getAsString()", "putString", primitive = false),
+)
+
+@Language("java")
+fun applyConstantTemplates(path: List<String>, facets: List<PreparedFacet>): String {
+    if (facets.isEmpty()) return ""
+    return facets.map { (method, key, type) ->
+        CONSTANT_TEMPLATE
+            .replace(T_FACET_CLASS, type.facetClass)
+            .replace(T_CONST, method.toConstantName())
+            .replace(T_FACTORY, type.factory)
+            .replace(T_PATH_ARGS, (path + key).joinToString(", ", transform = ::quote))
+    }.reduce(::join).trim()
+}
+
+@Language("java")
+fun applyPathTemplates(path: List<String>): String {
+    val resolve = if (path.isEmpty()) "t0" else path.withIndex().joinToString(
+        separator = " && ",
+        prefix = "t0 != null && ",
+        postfix = " ? t${path.size} : null",
+    ) { (i, key) -> "t$i.get(${quote(key)}) instanceof CompoundTag t${i + 1}" }
+    val create = path.joinToString("") { "\n                    tag = child(tag, ${quote(it)});" }
+    return PATH_TEMPLATE
+        .replace(T_RESOLVE, resolve)
+        .replace(T_CREATE, create)
+        .trim()
+}
+
+@Language("java")
+fun applyAccessorTemplates(facets: List<PreparedFacet>): String {
+    if (facets.isEmpty()) return ""
+    return facets.map { (method, key, type) ->
+        (if (type.primitive) PRIMITIVE_GETTER_TEMPLATE else REFERENCE_GETTER_TEMPLATE)
+            .append(ACCESSOR_TEMPLATE)
+            .replace(T_NAME, method.replaceFirstChar(Char::uppercaseChar))
+            .replace(T_CONST, method.toConstantName())
+            .replace(T_KEY, quote(key))
+            .replace(T_TYPE, type.type)
+            .replace(T_TAG_CLASS, type.tagClass)
+            .replace(T_READ, type.readExpr)
+            .replace(T_PUT, type.putMethod)
+    }.reduce(::join).trim()
+}
+
+private fun String.append(other: String) = this + other
+
+private fun join(a: String, b: String) = "$a$b"
+
+private fun String.toConstantName() = replace(Regex("([a-z0-9])([A-Z])"), "$1_$2").uppercase()
+
+private fun quote(str: String) = "\"" + str.replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+
+@Language("n/a") private const val T_FACET_CLASS = "__facetClass"
+@Language("n/a") private const val T_CONST = "__const"
+@Language("n/a") private const val T_FACTORY = "__factory"
+@Language("n/a") private const val T_PATH_ARGS = "__pathArgs"
+@Language("n/a") private const val T_RESOLVE = "__resolve"
+@Language("n/a") private const val T_CREATE = "__create"
+@Language("n/a") private const val T_NAME = "__name"
+@Language("n/a") private const val T_KEY = "__key"
+@Language("n/a") private const val T_TYPE = "__type"
+@Language("n/a") private const val T_TAG_CLASS = "__tagClass"
+@Language("n/a") private const val T_READ = "__read"
+@Language("n/a") private const val T_PUT = "__put"
+
+@Language("java")
+private const val CONSTANT_TEMPLATE = "                public static final $T_FACET_CLASS $T_CONST = Facets.$T_FACTORY($T_PATH_ARGS);\n"
+
+@Language("java")
+private const val PATH_TEMPLATE = """
+                private static @Nullable CompoundTag getParentTag(ItemStack stack) {
+                    var t0 = stack.getTag();
+                    return $T_RESOLVE;
+                }
+
+                private static CompoundTag getOrCreateParentTag(ItemStack stack) {
+                    var tag = stack.getOrCreateTag();$T_CREATE
+                    return tag;
+                }
+
+                private static CompoundTag child(CompoundTag tag, String key) {
+                    if (tag.get(key) instanceof CompoundTag child) return child;
+                    var created = new CompoundTag();
+                    tag.put(key, created);
+                    return created;
+                }
+"""
+
+@Language("java")
+private const val PRIMITIVE_GETTER_TEMPLATE = """
+                @Contract(pure = true)
+                public static $T_TYPE get$T_NAME(ItemStack stack, $T_TYPE fallback) {
+                    var parent = getParentTag(stack);
+                    return parent != null && parent.get($T_KEY) instanceof $T_TAG_CLASS tag ? $T_READ : fallback;
+                }
+"""
+
+@Language("java")
+private const val REFERENCE_GETTER_TEMPLATE = """
+                @Contract(pure = true)
+                public static @Nullable $T_TYPE get$T_NAME(ItemStack stack) {
+                    var parent = getParentTag(stack);
+                    return parent != null && parent.get($T_KEY) instanceof $T_TAG_CLASS tag ? $T_READ : null;
+                }
+"""
+
+@Language("java")
+private const val ACCESSOR_TEMPLATE = """
+                public static void set$T_NAME(ItemStack stack, $T_TYPE value) {
+                    getOrCreateParentTag(stack).$T_PUT($T_KEY, value);
+                    $T_CONST.markWritten(stack);
+                }
+
+                @Contract(pure = true)
+                public static boolean has$T_NAME(ItemStack stack) {
+                    var parent = getParentTag(stack);
+                    return parent != null && parent.get($T_KEY) instanceof $T_TAG_CLASS;
+                }
+
+                public static void remove$T_NAME(ItemStack stack) {
+                    $T_CONST.remove(stack);
+                }
+"""
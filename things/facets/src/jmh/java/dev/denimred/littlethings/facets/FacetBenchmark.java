@@ -0,0 +1,71 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the core {@link Facet} operations across path depths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacetBenchmark {
+    @Param({"0", "1", "3", "6"})
+    public int depth;
+
+    private IntFacet facet;
+    private ItemStack present;
+    private ItemStack absent;
+
+    @Setup
+    public void setup() {
+        FacetBenchmarks.bootstrap();
+        facet = FacetBenchmarks.facet(depth, IntFacet::new);
+        present = new ItemStack(Items.STICK);
+        facet.setInt(present, 42);
+        absent = new ItemStack(Items.STICK);
+    }
+
+    @Benchmark
+    public boolean isInPresent() {
+        return facet.isIn(present);
+    }
+
+    @Benchmark
+    public boolean isInAbsent() {
+        return facet.isIn(absent);
+    }
+
+    @Benchmark
+    public @Nullable Integer getBoxed() {
+        return facet.get(present);
+    }
+
+    @Benchmark
+    public int getPrimitive() {
+        return facet.getInt(present, 0);
+    }
+
+    @Benchmark
+    public void setBoxed() {
+        facet.set(present, 42);
+    }
+
+    @Benchmark
+    public void setPrimitive() {
+        facet.setInt(present, 42);
+    }
+
+    @Benchmark
+    public void removeAndSet() {
+        facet.remove(present);
+        facet.setInt(present, 42);
+    }
+}
@@ -0,0 +1,32 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.DetectedVersion;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+/**
+ * Shared setup for the facet benchmarks.
+ */
+final class FacetBenchmarks {
+    private FacetBenchmarks() {
+        throw new AssertionError();
+    }
+
+    static void bootstrap() {
+        SharedConstants.setVersion(DetectedVersion.BUILT_IN);
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * Constructs a facet whose name is nested at the given depth.
+     */
+    static <F extends Facet<?>> F facet(int depth, BiFunction<String, String[], F> constructor) {
+        var path = new String[depth + 1];
+        for (int i = 0; i < depth; i++) path[i] = "level" + i;
+        path[depth] = "value";
+        return constructor.apply(path[0], Arrays.copyOfRange(path, 1, path.length));
+    }
+}
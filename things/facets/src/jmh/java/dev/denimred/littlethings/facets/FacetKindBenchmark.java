@@ -0,0 +1,77 @@
+package dev.denimred.littlethings.facets;
+
+import com.mojang.serialization.Codec;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reads and writes of primitive, codec-backed, and object facets, with and without a {@link DecodeCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacetKindBenchmark {
+    private IntFacet primitive;
+    private Facet<Integer> codec;
+    private Facet<ItemStack> object;
+    private Facet<ItemStack> cachedObject;
+    private ItemStack stack;
+    private ItemStack value;
+
+    @Setup
+    public void setup() {
+        FacetBenchmarks.bootstrap();
+        primitive = Facets.intFacet("bench", "primitive");
+        codec = Facets.codecFacet(Codec.INT, "bench", "codec");
+        object = Facets.stackFacet("bench", "object");
+        cachedObject = Facets.stackFacet("bench", "cached_object").withDecodeCache(16);
+        value = new ItemStack(Items.DIAMOND, 3);
+        stack = new ItemStack(Items.STICK);
+        primitive.setInt(stack, 3);
+        codec.set(stack, 3);
+        object.set(stack, value);
+        cachedObject.set(stack, value);
+    }
+
+    @Benchmark
+    public int getPrimitive() {
+        return primitive.getInt(stack, 0);
+    }
+
+    @Benchmark
+    public @Nullable Integer getCodec() {
+        return codec.get(stack);
+    }
+
+    @Benchmark
+    public @Nullable ItemStack getObject() {
+        return object.get(stack);
+    }
+
+    @Benchmark
+    public @Nullable ItemStack getCachedObject() {
+        return cachedObject.get(stack);
+    }
+
+    @Benchmark
+    public void setPrimitive() {
+        primitive.setInt(stack, 3);
+    }
+
+    @Benchmark
+    public void setCodec() {
+        codec.set(stack, 3);
+    }
+
+    @Benchmark
+    public void setObject() {
+        object.set(stack, value);
+    }
+}
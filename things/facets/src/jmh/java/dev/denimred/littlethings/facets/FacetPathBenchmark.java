@@ -0,0 +1,74 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FacetPath} against the original two-lookup traversal that {@link Facet} used before paths were precompiled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacetPathBenchmark {
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public int depth;
+
+    private String[] keys;
+    private FacetPath path;
+    private CompoundTag root;
+
+    @Setup
+    public void setup() {
+        keys = new String[depth];
+        for (int i = 0; i < depth; i++) keys[i] = "level" + i;
+        path = FacetPath.of(keys);
+        root = new CompoundTag();
+        path.resolveOrCreate(root).putInt("value", 1);
+    }
+
+    private static @Nullable CompoundTag legacyResolve(@Nullable CompoundTag root, String[] path) {
+        if (root == null) return null;
+        var tag = root;
+        for (String key : path) {
+            if (!tag.contains(key, Tag.TAG_COMPOUND)) return null;
+            tag = tag.getCompound(key);
+        }
+        return tag;
+    }
+
+    private static CompoundTag legacyResolveOrCreate(CompoundTag root, String[] path) {
+        var tag = root;
+        for (String key : path) {
+            if (!tag.contains(key, Tag.TAG_COMPOUND)) tag.put(key, new CompoundTag());
+            tag = tag.getCompound(key);
+        }
+        return tag;
+    }
+
+    @Benchmark
+    public @Nullable CompoundTag resolveLegacy() {
+        return legacyResolve(root, keys);
+    }
+
+    @Benchmark
+    public @Nullable CompoundTag resolveCompiled() {
+        return path.resolve(root);
+    }
+
+    @Benchmark
+    public CompoundTag resolveOrCreateLegacy() {
+        return legacyResolveOrCreate(root, keys);
+    }
+
+    @Benchmark
+    public CompoundTag resolveOrCreateCompiled() {
+        return path.resolveOrCreate(root);
+    }
+}
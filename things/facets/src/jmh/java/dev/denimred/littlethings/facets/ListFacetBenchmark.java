@@ -0,0 +1,65 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures iteration and mutation of list facets through {@link ListTagDelegate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListFacetBenchmark {
+    @Param({"8", "64"})
+    public int size;
+
+    private Facet<List<String>> facet;
+    private ItemStack stack;
+    private List<String> values;
+
+    @Setup
+    public void setup() {
+        FacetBenchmarks.bootstrap();
+        facet = Facets.stringListFacet("bench", "list");
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) values.add("value" + i);
+        stack = new ItemStack(Items.STICK);
+        facet.set(stack, values);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (String value : facet.getOrThrow(stack)) blackhole.consume(value);
+    }
+
+    @Benchmark
+    public String getMiddle() {
+        return facet.getOrThrow(stack).get(size / 2);
+    }
+
+    @Benchmark
+    public String setMiddle() {
+        return facet.getOrThrow(stack).set(size / 2, "replacement");
+    }
+
+    @Benchmark
+    public String addAndRemove() {
+        var list = facet.getOrThrow(stack);
+        list.add("extra");
+        return list.remove(list.size() - 1);
+    }
+
+    @Benchmark
+    public void setWhole() {
+        facet.set(stack, values);
+    }
+}
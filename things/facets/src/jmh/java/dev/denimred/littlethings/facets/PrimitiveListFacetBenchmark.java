@@ -0,0 +1,56 @@
+package dev.denimred.littlethings.facets;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures primitive list facets through {@link IntListTagDelegate}, for comparison against {@link ListFacetBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveListFacetBenchmark {
+    @Param({"8", "64"})
+    public int size;
+
+    private Facet<IntList> facet;
+    private ItemStack stack;
+    private IntList values;
+
+    @Setup
+    public void setup() {
+        FacetBenchmarks.bootstrap();
+        facet = Facets.intListFacet("bench", "ints");
+        values = new IntArrayList(size);
+        for (int i = 0; i < size; i++) values.add(size - i);
+        stack = new ItemStack(Items.STICK);
+        facet.set(stack, values);
+    }
+
+    @Benchmark
+    public long sum() {
+        var list = facet.getOrThrow(stack);
+        long sum = 0;
+        for (int i = 0, size = list.size(); i < size; i++) sum += list.getInt(i);
+        return sum;
+    }
+
+    @Benchmark
+    public int setMiddle() {
+        return facet.getOrThrow(stack).set(size / 2, -1);
+    }
+
+    @Benchmark
+    public void sort() {
+        facet.set(stack, values);
+        facet.getOrThrow(stack).sort(null);
+    }
+}
@@ -0,0 +1,202 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.LongArrayTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * The backing array of a write-through primitive list view over an NBT array tag, which makes every change for the view
+ * that doesn't depend on its element type. Views read and update elements directly on the {@linkplain #data backing array},
+ * which is also the array of the tag, and convert elements at the boundary if their type differs from the tag's.
+ * <p>
+ * Since NBT arrays can't have spare capacity, structural changes replace the tag with a resized copy.
+ * Changes that leave the array empty remove the tag instead, the same as writing an empty list does.
+ * <p>
+ * Every change is reported to the view's {@linkplain TagView#bind listener} once it's complete;
+ * views that update single elements themselves report those updates through {@link #changed}.
+ *
+ * @param <A> the type of the backing array.
+ */
+abstract class ArrayTagStorage<A> {
+    private final CompoundTag parent;
+    private final String name;
+    A data;
+    private @Nullable Runnable listener;
+
+    private ArrayTagStorage(CompoundTag parent, String name, A data) {
+        this.parent = parent;
+        this.name = name;
+        this.data = data;
+    }
+
+    abstract int length(A array);
+
+    abstract A allocate(int length);
+
+    abstract void write(CompoundTag parent, String name, A data);
+
+    final int size() {
+        return length(data);
+    }
+
+    final void bind(Runnable listener) {
+        this.listener = listener;
+    }
+
+    final void changed() {
+        var listener = this.listener;
+        if (listener != null) listener.run();
+    }
+
+    private void replace(A data) {
+        this.data = data;
+        write(parent, name, data);
+        changed();
+    }
+
+    final void insert(int index, A elements, int offset, int length) {
+        int size = size();
+        Objects.checkIndex(index, size + 1);
+        Objects.checkFromIndexSize(offset, length, length(elements));
+        if (length == 0) return;
+        var grown = allocate(size + length);
+        System.arraycopy(data, 0, grown, 0, index);
+        System.arraycopy(elements, offset, grown, index, length);
+        System.arraycopy(data, index, grown, index + length, size - index);
+        replace(grown);
+    }
+
+    final void remove(int from, int to) {
+        int size = size();
+        Objects.checkFromToIndex(from, to, size);
+        if (from == to) return;
+        var shrunk = allocate(size - (to - from));
+        System.arraycopy(data, 0, shrunk, 0, from);
+        System.arraycopy(data, to, shrunk, from, size - to);
+        replace(shrunk);
+    }
+
+    final void removeAt(int index) {
+        Objects.checkIndex(index, size());
+        remove(index, index + 1);
+    }
+
+    final void resize(int size) {
+        var resized = allocate(size);
+        System.arraycopy(data, 0, resized, 0, Math.min(size, size()));
+        replace(resized);
+    }
+
+    /**
+     * Checks that a bulk copy of the given length between the backing array and another array of the given length stays within both.
+     */
+    final void checkBulk(int index, int length, int otherLength, int offset) {
+        Objects.checkFromIndexSize(index, length, size());
+        Objects.checkFromIndexSize(offset, length, otherLength);
+    }
+
+    final void get(int from, A target, int offset, int length) {
+        checkBulk(from, length, length(target), offset);
+        System.arraycopy(data, from, target, offset, length);
+    }
+
+    final void set(int index, A elements, int offset, int length) {
+        checkBulk(index, length, length(elements), offset);
+        System.arraycopy(elements, offset, data, index, length);
+        changed();
+    }
+
+    final A copy() {
+        var copy = allocate(size());
+        System.arraycopy(data, 0, copy, 0, size());
+        return copy;
+    }
+
+    /**
+     * The backing array of an {@link IntArrayTag}.
+     */
+    static final class Ints extends ArrayTagStorage<int[]> {
+        private Ints(CompoundTag parent, String name, int[] data) {
+            super(parent, name, data);
+        }
+
+        static <V> Reader<V> reader(Function<Ints, V> view) {
+            return (tag, name) -> tag.get(name) instanceof IntArrayTag raw ? view.apply(new Ints(tag, name, raw.getAsIntArray())) : null;
+        }
+
+        static <V> Writer<V> writer(Function<V, int[]> encoder) {
+            return (tag, name, list) -> put(tag, name, encoder.apply(list));
+        }
+
+        private static void put(CompoundTag parent, String name, int[] data) {
+            if (data.length == 0) {
+                parent.remove(name);
+            } else {
+                parent.putIntArray(name, data);
+            }
+        }
+
+        @Override
+        int length(int[] array) {
+            return array.length;
+        }
+
+        @Override
+        int[] allocate(int length) {
+            return length == 0 ? IntArrays.EMPTY_ARRAY : new int[length];
+        }
+
+        @Override
+        void write(CompoundTag parent, String name, int[] data) {
+            put(parent, name, data);
+        }
+    }
+
+    /**
+     * The backing array of a {@link LongArrayTag}.
+     */
+    static final class Longs extends ArrayTagStorage<long[]> {
+        private Longs(CompoundTag parent, String name, long[] data) {
+            super(parent, name, data);
+        }
+
+        static <V> Reader<V> reader(Function<Longs, V> view) {
+            return (tag, name) -> tag.get(name) instanceof LongArrayTag raw ? view.apply(new Longs(tag, name, raw.getAsLongArray())) : null;
+        }
+
+        static <V> Writer<V> writer(Function<V, long[]> encoder) {
+            return (tag, name, list) -> put(tag, name, encoder.apply(list));
+        }
+
+        private static void put(CompoundTag parent, String name, long[] data) {
+            if (data.length == 0) {
+                parent.remove(name);
+            } else {
+                parent.putLongArray(name, data);
+            }
+        }
+
+        @Override
+        int length(long[] array) {
+            return array.length;
+        }
+
+        @Override
+        long[] allocate(int length) {
+            return length == 0 ? LongArrays.EMPTY_ARRAY : new long[length];
+        }
+
+        @Override
+        void write(CompoundTag parent, String name, long[] data) {
+            put(parent, name, data);
+        }
+    }
+}
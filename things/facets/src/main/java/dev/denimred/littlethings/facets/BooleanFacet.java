@@ -0,0 +1,61 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.ByteTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+
+import static net.minecraft.nbt.Tag.TAG_BYTE;
+
+/**
+ * A {@link Facet} specialized for boolean values, which can be read and written without boxing.
+ * <p>
+ * The boxed {@link Facet} API remains available for callers that work with generic facets.
+ */
+public final class BooleanFacet extends Facet<Boolean> {
+    /**
+     * Constructs a new boolean facet with the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     */
+    public BooleanFacet(String pathFirst, String... pathRem) {
+        super(TAG_BYTE, CompoundTag::getBoolean, CompoundTag::putBoolean, pathFirst, pathRem);
+    }
+
+    /**
+     * Retrieves data from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
+     */
+    public boolean getBoolean(ItemStack stack, boolean fallback) {
+        return getRawTag(stack) instanceof ByteTag tag ? tag.getAsByte() != 0 : fallback;
+    }
+
+    /**
+     * Writes data to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided value to.
+     * @param value the value to be written to the stack.
+     */
+    public void setBoolean(ItemStack stack, boolean value) {
+        putTag(stack, ByteTag.valueOf(value));
+    }
+
+    /**
+     * Inverts the data stored in the stack and writes the result back, resolving the path only once.
+     *
+     * @param stack the item stack to modify.
+     * @param fallback the value to invert if no data was present.
+     *
+     * @return the new value that was written to the stack.
+     */
+    public boolean toggle(ItemStack stack, boolean fallback) {
+        var parent = getOrCreateParentTag(stack);
+        boolean value = !(parent.get(name) instanceof ByteTag tag ? tag.getAsByte() != 0 : fallback);
+        putTag(stack, parent, ByteTag.valueOf(value));
+        return value;
+    }
+}
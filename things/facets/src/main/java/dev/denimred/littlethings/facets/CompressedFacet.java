@@ -0,0 +1,168 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static net.minecraft.nbt.Tag.TAG_BYTE_ARRAY;
+
+/**
+ * A {@link Facet} for large payloads, which stores its data as a deflated byte array instead of a tag tree.
+ * <p>
+ * This keeps big subtrees (such as captured entities) small in saves, packets, and memory, at the cost of inflating them when read.
+ * Payloads are only inflated when they are actually read, and compressed facets have a {@linkplain #getDecodeCache decode cache}
+ * enabled by default, so repeated reads of the same stack don't inflate the payload again. Payloads are compressed again on every write.
+ * <p>
+ * Since decoded values are cached, {@linkplain Facets#compressedTagFacet compressed compounds} are copied on every read, so that changing
+ * a read compound never affects later reads. Values of {@linkplain Facets#compressedCodecFacet codec facets} are shared between reads
+ * instead, and must be treated as read-only; write a changed copy back with {@link #set} instead of changing them in-place.
+ * <p>
+ * Inflated payloads are limited in size, so a malicious payload (such as one sent by a creative mode client) can't exhaust memory.
+ *
+ * @param <T> the type that this facet handles.
+ *
+ * @see Facets#compressedTagFacet
+ * @see FacetMigration#compressed
+ */
+public final class CompressedFacet<T> extends Facet<T> {
+    static final int DEFAULT_CACHE_SIZE = 256;
+    private static final long MAX_INFLATED_BYTES = 16L * 1024 * 1024;
+    private static final String PAYLOAD = "p";
+    private final Counters counters;
+    private final UnaryOperator<T> copier;
+
+    CompressedFacet(Function<Tag, @Nullable T> decoder, Function<T, @Nullable Tag> encoder, UnaryOperator<T> copier, String pathFirst, String... pathRem) {
+        this(new Counters(), decoder, encoder, copier, pathFirst, pathRem);
+    }
+
+    private CompressedFacet(Counters counters, Function<Tag, @Nullable T> decoder, Function<T, @Nullable Tag> encoder, UnaryOperator<T> copier, String pathFirst, String[] pathRem) {
+        super(TAG_BYTE_ARRAY, (tag, name) -> {
+            var payload = inflate(tag.getByteArray(name), counters);
+            return payload != null ? decoder.apply(payload) : null;
+        }, (tag, name, value) -> {
+            var payload = encoder.apply(value);
+            if (payload != null) tag.put(name, deflate(payload, counters));
+        }, pathFirst, pathRem);
+        this.counters = counters;
+        this.copier = copier;
+        withDecodeCache(DEFAULT_CACHE_SIZE);
+    }
+
+    @Override
+    @Nullable T read(CompoundTag parent) {
+        @Nullable T value = super.read(parent);
+        // Cached values are shared between reads, so callers get their own copy to change
+        return value != null ? copier.apply(value) : null;
+    }
+
+    /**
+     * Compresses a payload into the form that compressed facets store.
+     *
+     * @param payload the payload to compress.
+     *
+     * @return a new byte array tag holding the compressed payload.
+     */
+    static ByteArrayTag deflate(Tag payload) {
+        return deflate(payload, null);
+    }
+
+    private static ByteArrayTag deflate(Tag payload, @Nullable Counters counters) {
+        // Payloads are wrapped, since only compound tags can be written as a root
+        var wrapper = new CompoundTag();
+        wrapper.put(PAYLOAD, payload);
+        var bytes = new ByteArrayOutputStream();
+        int uncompressed;
+        try (var out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            NbtIo.write(wrapper, out);
+            uncompressed = out.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // In-memory streams don't actually throw
+        }
+        var compressed = bytes.toByteArray();
+        if (counters != null) {
+            counters.compressions.increment();
+            counters.uncompressedBytes.add(uncompressed);
+            counters.compressedBytes.add(compressed.length);
+        }
+        return new ByteArrayTag(compressed);
+    }
+
+    /**
+     * Inflates a byte array that may hold a payload written by a compressed facet, such as when looking through saved data.
+     *
+     * @param bytes the byte array to inflate.
+     *
+     * @return the payload, or null if the byte array doesn't hold a valid payload.
+     */
+    static @Nullable Tag inflate(byte[] bytes) {
+        // Skip arrays that don't start with a zlib header without trying to inflate them
+        if (bytes.length < 2 || (bytes[0] & 0x0F) != 8 || ((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF)) % 31 != 0) return null;
+        return inflate(bytes, null);
+    }
+
+    private static @Nullable Tag inflate(byte[] bytes, @Nullable Counters counters) {
+        if (counters != null) counters.inflations.increment();
+        try (var in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes))))) {
+            return NbtIo.read(in, new NbtAccounter(MAX_INFLATED_BYTES)).get(PAYLOAD);
+        } catch (IOException | RuntimeException e) {
+            // The accounter throws a runtime exception when the limit is exceeded
+            if (counters != null) counters.failedInflations.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Captures the compression statistics of this facet.
+     *
+     * @return a snapshot of the statistics recorded since this facet was constructed.
+     */
+    @Contract(value = "-> new", pure = true)
+    public Stats getStats() {
+        return new Stats(counters.compressions.sum(), counters.uncompressedBytes.sum(), counters.compressedBytes.sum(),
+                counters.inflations.sum(), counters.failedInflations.sum());
+    }
+
+    /**
+     * A snapshot of the compression statistics of a {@link CompressedFacet}.
+     *
+     * @param compressions the number of payloads that were compressed.
+     * @param uncompressedBytes the total size of the compressed payloads before compression.
+     * @param compressedBytes the total size of the compressed payloads after compression.
+     * @param inflations the number of payloads that were inflated, which doesn't include reads served by the decode cache.
+     * @param failedInflations the number of payloads that couldn't be inflated because they were corrupt or too large.
+     */
+    public record Stats(long compressions, long uncompressedBytes, long compressedBytes, long inflations, long failedInflations) {
+        /**
+         * @return the average compressed size relative to the uncompressed size (lower is better), or 1 if nothing was compressed.
+         */
+        @Contract(pure = true)
+        public double ratio() {
+            return uncompressedBytes == 0 ? 1 : (double) compressedBytes / uncompressedBytes;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder compressions = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final LongAdder inflations = new LongAdder();
+        private final LongAdder failedInflations = new LongAdder();
+    }
+}
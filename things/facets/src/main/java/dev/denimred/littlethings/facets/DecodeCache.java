@@ -0,0 +1,169 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of decoded facet values, keyed on the identity of the tag they were decoded from.
+ * <p>
+ * Tags are only weakly referenced, so the cache never keeps a stack's data alive on its own.
+ * Entries are invalidated when their facet writes or removes data, and lookups never look at the contents of the tag,
+ * so a hit costs the same no matter how large the data is. As a consequence, tags that other code changes in-place
+ * keep returning the value that was decoded before the change, until the data is written through the facet or the cache is {@linkplain #clear cleared}.
+ * <p>
+ * Keep in mind that cached values are shared between reads, so mutable values should only be changed through {@link Facet#mutate}.
+ *
+ * @param <T> the type of the decoded values.
+ *
+ * @see Facet#withDecodeCache
+ */
+public final class DecodeCache<T> {
+    private final Map<Object, Entry<T>> entries;
+    private final ReferenceQueue<Tag> queue = new ReferenceQueue<>();
+    private final Probe probe = new Probe();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    DecodeCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Decode cache size must be positive, got " + maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry<T>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up the value decoded from the given tag.
+     *
+     * @return the cached entry, or null if the tag hasn't been decoded yet or was invalidated since.
+     */
+    @Nullable Entry<T> lookup(Tag tag) {
+        Entry<T> entry;
+        synchronized (this) {
+            entry = entries.get(probe.set(tag));
+            probe.clear();
+        }
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    void store(Tag tag, @Nullable T value) {
+        synchronized (this) {
+            expungeStaleEntries();
+            entries.put(new Key(tag, queue), new Entry<>(value));
+        }
+    }
+
+    void invalidate(Tag tag) {
+        synchronized (this) {
+            entries.remove(probe.set(tag));
+            probe.clear();
+        }
+    }
+
+    private void expungeStaleEntries() {
+        for (Object key; (key = queue.poll()) != null; ) entries.remove(key);
+    }
+
+    /**
+     * Removes every entry from this cache. The hit and miss counters are left untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        expungeStaleEntries();
+    }
+
+    /**
+     * Captures the current statistics of this cache.
+     *
+     * @return a snapshot of the hit and miss counters and the current number of entries.
+     */
+    @Contract(value = "-> new", pure = true)
+    public Stats stats() {
+        int size;
+        synchronized (this) {
+            expungeStaleEntries();
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), size);
+    }
+
+    /**
+     * A snapshot of the statistics of a {@link DecodeCache}.
+     *
+     * @param hits the number of reads that were served from the cache.
+     * @param misses the number of reads that had to be decoded.
+     * @param size the number of entries in the cache at the time of the snapshot.
+     */
+    public record Stats(long hits, long misses, int size) {
+        /**
+         * @return the ratio of hits to total reads, or 0 if there haven't been any reads.
+         */
+        @Contract(pure = true)
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    record Entry<T>(@Nullable T value) {}
+
+    private static final class Key extends WeakReference<Tag> {
+        private final int hash;
+
+        private Key(Tag tag, ReferenceQueue<Tag> queue) {
+            super(tag, queue);
+            this.hash = System.identityHashCode(tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            var referent = get();
+            return referent != null && obj instanceof Key key && key.get() == referent;
+        }
+    }
+
+    /**
+     * A reusable lookup key, so that hits don't need to allocate a new weak reference.
+     * Only used while holding the cache's lock.
+     */
+    private static final class Probe {
+        private @Nullable Tag tag;
+        private int hash;
+
+        private Probe set(Tag tag) {
+            this.tag = tag;
+            this.hash = System.identityHashCode(tag);
+            return this;
+        }
+
+        private void clear() {
+            this.tag = null;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key key && tag != null && key.get() == tag;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+import static net.minecraft.nbt.Tag.TAG_END;
+
+/**
+ * A {@link Facet} for large payloads that many stacks share, which stores a reference to its payload in the {@link FacetPayloadStore}
+ * instead of the payload itself, so that a thousand copies of the same stack only keep the payload once.
+ * <p>
+ * Payloads are stored inline instead while no store is attached, and references are replaced with their payloads
+ * in {@linkplain NetworkFacets#prepareForNetwork item data that is sent to clients}, so clients never need a store.
+ * Payloads are copied when read, so changes to a read value are only kept after writing it back (such as with {@link #mutate}).
+ *
+ * @param <T> the type that this facet handles.
+ *
+ * @see Facets#deduplicatedTagFacet
+ */
+public final class DeduplicatedFacet<T> extends Facet<T> {
+    DeduplicatedFacet(Function<Tag, @Nullable T> decoder, Function<T, @Nullable Tag> encoder, String pathFirst, String... pathRem) {
+        super(TAG_END, (tag, name) -> {
+            var stored = tag.get(name);
+            var payload = stored != null ? FacetPayloadStore.resolve(stored) : null;
+            return payload != null ? decoder.apply(payload.copy()) : null;
+        }, (tag, name, value) -> {
+            var payload = encoder.apply(value);
+            if (payload != null) tag.put(name, FacetPayloadStore.reference(payload));
+        }, pathFirst, pathRem);
+        NetworkFacets.registerDeduplicated(this);
+    }
+}
@@ -0,0 +1,62 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.world.item.ItemStack;
+
+import static net.minecraft.nbt.Tag.TAG_DOUBLE;
+
+/**
+ * A {@link Facet} specialized for double values, which can be read and written without boxing.
+ * <p>
+ * The boxed {@link Facet} API remains available for callers that work with generic facets.
+ */
+public final class DoubleFacet extends Facet<Double> {
+    /**
+     * Constructs a new double facet with the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     */
+    public DoubleFacet(String pathFirst, String... pathRem) {
+        super(TAG_DOUBLE, CompoundTag::getDouble, CompoundTag::putDouble, pathFirst, pathRem);
+    }
+
+    /**
+     * Retrieves data from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
+     */
+    public double getDouble(ItemStack stack, double fallback) {
+        return getRawTag(stack) instanceof DoubleTag tag ? tag.getAsDouble() : fallback;
+    }
+
+    /**
+     * Writes data to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided value to.
+     * @param value the value to be written to the stack.
+     */
+    public void setDouble(ItemStack stack, double value) {
+        putTag(stack, DoubleTag.valueOf(value));
+    }
+
+    /**
+     * Adds to the data stored in the stack and writes the result back, resolving the path only once.
+     *
+     * @param stack the item stack to modify.
+     * @param delta the amount to add to the stored value.
+     * @param fallback the value to add to if no data was present.
+     *
+     * @return the new value that was written to the stack.
+     */
+    public double addAndGet(ItemStack stack, double delta, double fallback) {
+        var parent = getOrCreateParentTag(stack);
+        double value = (parent.get(name) instanceof DoubleTag tag ? tag.getAsDouble() : fallback) + delta;
+        putTag(stack, parent, DoubleTag.valueOf(value));
+        return value;
+    }
+}
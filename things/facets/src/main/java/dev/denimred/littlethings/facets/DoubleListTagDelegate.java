@@ -0,0 +1,119 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import it.unimi.dsi.fastutil.doubles.AbstractDoubleList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleCollection;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import net.minecraft.nbt.LongArrayTag;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A write-through {@link DoubleList} view over a {@link LongArrayTag} of raw double bits, which never creates per-element objects.
+ * <p>
+ * Element updates happen in-place on the tag's backing array, while structural changes are made by its {@link ArrayTagStorage},
+ * so bulk operations should be preferred over repeated single-element ones.
+ */
+final class DoubleListTagDelegate extends AbstractDoubleList implements RandomAccess, TagView {
+    private final ArrayTagStorage.Longs storage;
+
+    private DoubleListTagDelegate(ArrayTagStorage.Longs storage) {
+        this.storage = storage;
+    }
+
+    static Reader<DoubleList> reader() {
+        return ArrayTagStorage.Longs.reader(DoubleListTagDelegate::new);
+    }
+
+    static Writer<DoubleList> writer() {
+        return ArrayTagStorage.Longs.writer(DoubleListTagDelegate::encode);
+    }
+
+    private static long[] encode(DoubleList list) {
+        var raw = new long[list.size()];
+        for (int i = 0; i < raw.length; i++) raw[i] = Double.doubleToRawLongBits(list.getDouble(i));
+        return raw;
+    }
+
+    @Override
+    public void bind(Runnable listener) {
+        storage.bind(listener);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(storage.data[index]);
+    }
+
+    @Override
+    public double set(int index, double k) {
+        double existing = Double.longBitsToDouble(storage.data[index]);
+        storage.data[index] = Double.doubleToRawLongBits(k);
+        storage.changed();
+        return existing;
+    }
+
+    @Override
+    public void add(int index, double k) {
+        storage.insert(index, new long[]{Double.doubleToRawLongBits(k)}, 0, 1);
+    }
+
+    @Override
+    public double removeDouble(int index) {
+        double existing = Double.longBitsToDouble(storage.data[index]);
+        storage.removeAt(index);
+        return existing;
+    }
+
+    @Override
+    public void addElements(int index, double[] a, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, a.length);
+        var raw = new long[length];
+        for (int i = 0; i < length; i++) raw[i] = Double.doubleToRawLongBits(a[offset + i]);
+        storage.insert(index, raw, 0, length);
+    }
+
+    @Override
+    public void removeElements(int from, int to) {
+        storage.remove(from, to);
+    }
+
+    @Override
+    public boolean addAll(int index, DoubleCollection c) {
+        var elements = c.toDoubleArray();
+        addElements(index, elements, 0, elements.length);
+        return elements.length > 0;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Double> c) {
+        return addAll(index, c instanceof DoubleCollection primitive ? primitive : new DoubleArrayList(c));
+    }
+
+    @Override
+    public void getElements(int from, double[] a, int offset, int length) {
+        storage.checkBulk(from, length, a.length, offset);
+        for (int i = 0; i < length; i++) a[offset + i] = Double.longBitsToDouble(storage.data[from + i]);
+    }
+
+    @Override
+    public void setElements(int index, double[] a, int offset, int length) {
+        storage.checkBulk(index, length, a.length, offset);
+        for (int i = 0; i < length; i++) storage.data[index + i] = Double.doubleToRawLongBits(a[offset + i]);
+        storage.changed();
+    }
+
+    @Override
+    public void size(int size) {
+        storage.resize(size);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+}
@@ -15,6 +15,7 @@ import org.jetbrains.annotations.VisibleForTesting;
 
 import java.util.NoSuchElementException;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
@@ -22,16 +23,26 @@ import static net.minecraft.nbt.Tag.TAG_END;
 
 /**
  * A simple abstraction around {@link ItemStack} NBT data.
+ * <p>
+ * Primitive data types have dedicated subclasses (such as {@link IntFacet}) that can read and write without boxing.
  *
  * @param <T> the type that this facet handles.
  */
-public final class Facet<T> {
+public class Facet<T> {
     static final Logger LOGGER = LogManager.getLogger();
+    private static final int PROJECTION_CACHE_SIZE = 256;
     @VisibleForTesting final String[] path;
     @VisibleForTesting final String name;
+    final FacetPath parentPath;
     private final byte type;
     private final Reader<T> reader;
     private final Writer<T> writer;
+    private @Nullable DecodeCache<T> decodeCache;
+    private boolean serverOnly;
+    private @Nullable Function<T, @Nullable T> clientProjection;
+    private @Nullable DecodeCache<Tag> projectionCache;
+    private @Nullable FacetMigrations migrations;
+    private FacetMetrics.@Nullable Counters metrics;
 
     /**
      * Constructs a new facet of the desired type with the given parameters.
@@ -46,54 +57,400 @@ public final class Facet<T> {
         this.type = type;
         this.reader = reader;
         this.writer = writer;
+        // Keys are interned, so that every compound written by facets shares the same key instances
         var remLength = pathRem.length;
         if (remLength == 0) {
             this.path = new String[0];
-            this.name = pathFirst;
+            this.name = FacetKeys.intern(pathFirst);
         } else {
             this.path = new String[remLength];
-            this.path[0] = pathFirst;
-            System.arraycopy(pathRem, 0, this.path, 1, remLength - 1);
-            this.name = pathRem[remLength - 1];
+            this.path[0] = FacetKeys.intern(pathFirst);
+            for (int i = 1; i < remLength; i++) this.path[i] = FacetKeys.intern(pathRem[i - 1]);
+            this.name = FacetKeys.intern(pathRem[remLength - 1]);
         }
+        this.parentPath = FacetPath.of(this.path);
     }
 
-    private static @Nullable CompoundTag getParentTag(ItemStack stack, String[] path) {
-        if (!stack.hasTag()) return null;
-        var tag = stack.getTag();
-        assert tag != null; // Sanity check; hasTag covers this
-        for (String key : path) {
-            if (!tag.contains(key, Tag.TAG_COMPOUND)) return null;
-            tag = tag.getCompound(key);
-        }
-        return tag;
+    @Nullable CompoundTag getParentTag(ItemStack stack) {
+        migrate(stack);
+        return parentPath.resolve(stack.getTag());
     }
 
-    private static CompoundTag getOrCreateParentTag(CompoundTag root, String[] path) {
-        var tag = root;
-        for (String key : path) {
-            if (!tag.contains(key, Tag.TAG_COMPOUND)) tag.put(key, new CompoundTag());
-            tag = tag.getCompound(key);
-        }
-        return tag;
+    CompoundTag getOrCreateParentTag(ItemStack stack) {
+        migrate(stack);
+        return parentPath.resolveOrCreate(stack.getOrCreateTag());
+    }
+
+    @Nullable CompoundTag getParentTag(FacetHolder holder) {
+        migrate(holder);
+        return parentPath.resolve(holder.getFacetData());
+    }
+
+    /**
+     * Applies this facet's migrations to the stack, unless they were already applied.
+     *
+     * @return true if any data was changed.
+     */
+    boolean migrate(ItemStack stack) {
+        var steps = migrations;
+        return steps != null && steps.apply(this, stack);
+    }
+
+    /**
+     * Applies this facet's migrations to the provided item data, regardless of whether they were already applied.
+     *
+     * @return true if any data was changed.
+     */
+    boolean migrate(CompoundTag root) {
+        var steps = migrations;
+        return steps != null && steps.apply(this, root);
+    }
+
+    private void migrate(FacetHolder holder) {
+        var steps = migrations;
+        if (steps != null) steps.apply(this, holder);
     }
 
-    private static CompoundTag getOrCreateParentTag(ItemStack stack, String[] path) {
-        return getOrCreateParentTag(stack.getOrCreateTag(), path);
+    @Nullable Tag getRawTag(ItemStack stack) {
+        var parent = getParentTag(stack);
+        var tag = parent != null ? parent.get(name) : null;
+        if (tag != null && FacetMetrics.isEnabled()) metrics().reads.increment();
+        return tag;
     }
 
     private boolean checkContains(CompoundTag tag) {
         return type == TAG_END ? tag.contains(name) : tag.contains(name, type);
     }
 
+    boolean isIn(CompoundTag parent) {
+        return checkContains(parent);
+    }
+
+    /**
+     * Retrieves the tag that represents this facet's data in the parent tag, which can be compared and hashed without decoding it.
+     *
+     * @return the data tag, or null if no applicable data was present.
+     */
+    @Nullable Tag dataTag(CompoundTag parent) {
+        return checkContains(parent) ? parent.get(name) : null;
+    }
+
+    /**
+     * @return the path and name of this facet, for use in log messages and diagnostics.
+     */
+    String describe() {
+        return Strings.join(path, ".") + ":" + name;
+    }
+
+    private FacetMetrics.Counters metrics() {
+        var counters = metrics;
+        if (counters == null) metrics = counters = FacetMetrics.counters(this);
+        return counters;
+    }
+
+    /**
+     * Marks this facet as modified on the stack, for write paths that don't go through {@link #write}
+     * (such as the accessors generated from a {@link FacetSchema}).
+     *
+     * @param stack the item stack that this facet's data was written to.
+     */
+    public void markWritten(ItemStack stack) {
+        if (FacetMetrics.isEnabled()) metrics().writes.increment();
+        FacetStamps.mark(stack, this);
+    }
+
+    /**
+     * Replaces this facet's data in the parent tag with an already encoded tag, for the primitive write paths that skip the writer.
+     * Cached values are invalidated and the write is recorded on the stack, the same as for {@link #set}.
+     *
+     * @param parent the stack's parent tag, which must have been resolved with {@link #getOrCreateParentTag}.
+     */
+    final void putTag(ItemStack stack, CompoundTag parent, Tag tag) {
+        invalidate(parent);
+        if (!FacetMetrics.isEnabled()) {
+            parent.put(name, tag);
+        } else {
+            long start = System.nanoTime();
+            parent.put(name, tag);
+            metrics().encodeNanos.add(System.nanoTime() - start);
+        }
+        markWritten(stack);
+    }
+
+    final void putTag(ItemStack stack, Tag tag) {
+        putTag(stack, getOrCreateParentTag(stack), tag);
+    }
+
+    /**
+     * Binds a {@linkplain TagView view} that was read from the stack, so that changes made through it are recorded on the stack.
+     */
+    private @Nullable T bind(@Nullable T value, ItemStack stack, CompoundTag parent) {
+        if (value instanceof TagView view) {
+            view.bind(new ViewBinding(parent) {
+                @Override
+                void prune() {
+                    parentPath.prune(stack);
+                }
+
+                @Override
+                void restore() {
+                    parentPath.restore(stack, parent);
+                }
+
+                @Override
+                void changed() {
+                    markWritten(stack);
+                }
+            });
+        }
+        return value;
+    }
+
+    private @Nullable T bind(@Nullable T value, FacetHolder holder, CompoundTag parent) {
+        if (value instanceof TagView view) {
+            view.bind(new ViewBinding(parent) {
+                @Override
+                void prune() {
+                    var root = holder.getFacetData();
+                    if (root != null && parentPath.prune(root, 0)) holder.setFacetData(null);
+                }
+
+                @Override
+                void restore() {
+                    parentPath.restore(holder, parent);
+                }
+
+                @Override
+                void changed() {
+                    holder.onFacetDataChanged();
+                }
+            });
+        }
+        return value;
+    }
+
+    @Nullable T read(CompoundTag parent) {
+        if (!checkContains(parent)) return null;
+        if (!FacetMetrics.isEnabled()) return decode(parent);
+
+        var counters = metrics();
+        long start = System.nanoTime();
+        @Nullable T value = decode(parent);
+        counters.decodeNanos.add(System.nanoTime() - start);
+        counters.reads.increment();
+        if (value == null) counters.failedReads.increment();
+        return value;
+    }
+
+    private @Nullable T decode(CompoundTag parent) {
+        var cache = decodeCache;
+        if (cache == null) return reader.read(parent, name);
+
+        var raw = parent.get(name);
+        assert raw != null; // Sanity check; checkContains covers this
+        var entry = cache.lookup(raw);
+        if (entry != null) return entry.value();
+        @Nullable T value = reader.read(parent, name);
+        cache.store(raw, value);
+        return value;
+    }
+
+    private void invalidate(CompoundTag parent) {
+        if (decodeCache == null && projectionCache == null) return;
+        var raw = parent.get(name);
+        if (raw != null) invalidate(raw);
+    }
+
+    private void invalidate(Tag raw) {
+        if (decodeCache != null) decodeCache.invalidate(raw);
+        if (projectionCache != null) projectionCache.invalidate(raw);
+    }
+
+    /**
+     * Writes data directly to the parent tag, discarding it if nothing or the wrong tag type was written.
+     * Empty parents are not pruned.
+     *
+     * @return true if the data was written, false if it was discarded.
+     */
+    boolean write(CompoundTag parent, T value) {
+        invalidate(parent);
+        if (!FacetMetrics.isEnabled()) return encode(parent, value);
+
+        var counters = metrics();
+        long start = System.nanoTime();
+        boolean written = encode(parent, value);
+        counters.encodeNanos.add(System.nanoTime() - start);
+        counters.writes.increment();
+        if (!written) counters.failedWrites.increment();
+        return written;
+    }
+
+    private boolean encode(CompoundTag parent, T value) {
+        writer.write(parent, name, value);
+        var valueTag = parent.get(name);
+        if (valueTag == null) return false;
+        if (type != TAG_END && valueTag.getId() != type) {
+            parent.remove(name);
+            LOGGER.warn("Facet {} tried to write data with wrong NBT type (expected type {}, got {})", describe(), type, valueTag.getId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes data directly from the parent tag. Empty parents are not pruned.
+     *
+     * @return true if any data was removed.
+     */
+    boolean removeFrom(CompoundTag parent) {
+        var raw = parent.get(name);
+        if (raw == null || !strip(parent)) return false;
+        invalidate(raw);
+        if (FacetMetrics.isEnabled()) metrics().removes.increment();
+        return true;
+    }
+
+    /**
+     * Removes data directly from the parent tag, without invalidating cached values or recording metrics.
+     * Facets that share their tag with other facets only remove their own part of it.
+     *
+     * @return true if any data was removed.
+     */
+    boolean strip(CompoundTag parent) {
+        if (!parent.contains(name)) return false;
+        parent.remove(name);
+        return true;
+    }
+
+    /**
+     * Enables a cache of decoded values for this facet, which is mainly useful for facets that rebuild complex objects on every read.
+     * Should only be called once, as part of the facet's declaration.
+     *
+     * @param maxSize the maximum number of decoded values to keep.
+     *
+     * @return this facet.
+     *
+     * @throws IllegalStateException if a decode cache was already enabled for this facet.
+     * @see DecodeCache
+     */
+    @Contract("_ -> this")
+    public Facet<T> withDecodeCache(int maxSize) {
+        if (decodeCache != null) throw new IllegalStateException("Decode cache was already enabled for facet " + name);
+        decodeCache = new DecodeCache<>(maxSize);
+        return this;
+    }
+
+    /**
+     * @return the decode cache of this facet, or null if it wasn't enabled.
+     *
+     * @see #withDecodeCache
+     */
+    @Contract(pure = true)
+    public @Nullable DecodeCache<T> getDecodeCache() {
+        return decodeCache;
+    }
+
+    /**
+     * Declares the steps that upgrade this facet's data from older layouts, which are applied lazily the first time each stack is accessed.
+     * Should only be called once, as part of the facet's declaration; when the layout changes again, append a new step to the end.
+     *
+     * @param first the step that upgrades data from the oldest layout.
+     * @param rest the steps that upgrade data from each subsequent layout.
+     *
+     * @return this facet.
+     *
+     * @throws IllegalStateException if migrations were already declared for this facet.
+     * @see FacetMigration
+     */
+    @Contract("_, _ -> this")
+    public Facet<T> withMigrations(FacetMigration first, FacetMigration... rest) {
+        if (migrations != null) throw new IllegalStateException("Migrations were already declared for facet " + name);
+        var steps = new FacetMigration[rest.length + 1];
+        steps[0] = first;
+        System.arraycopy(rest, 0, steps, 1, rest.length);
+        migrations = new FacetMigrations(steps);
+        return this;
+    }
+
+    /**
+     * @return the data version of this facet, which is the number of migration steps it declares.
+     *
+     * @see #withMigrations
+     */
+    @Contract(pure = true)
+    public int getDataVersion() {
+        var steps = migrations;
+        return steps != null ? steps.version() : 0;
+    }
+
+    /**
+     * Marks this facet as server-only, which keeps its data out of item data sent to clients entirely.
+     * Should only be called once, as part of the facet's declaration.
+     *
+     * @return this facet.
+     *
+     * @throws IllegalStateException if this facet was already marked as server-only.
+     * @see NetworkFacets
+     */
+    @Contract("-> this")
+    public Facet<T> serverOnly() {
+        if (serverOnly) throw new IllegalStateException("Facet " + name + " was already marked as server-only");
+        serverOnly = true;
+        NetworkFacets.register(this);
+        return this;
+    }
+
+    /**
+     * Marks this facet as server-only, replacing its data with a compact projection in item data sent to clients.
+     * Clients will read the projected value through this same facet.
+     * Projections are cached per stored tag, so the same data is only projected and encoded once rather than for every packet.
+     * Should only be called once, as part of the facet's declaration.
+     *
+     * @param projection the function that derives the client-side value from the full value; must not modify the full value,
+     * and may return null to strip the data entirely.
+     *
+     * @return this facet.
+     *
+     * @throws IllegalStateException if this facet was already marked as server-only.
+     * @see NetworkFacets
+     */
+    @Contract("_ -> this")
+    public Facet<T> serverOnly(Function<T, @Nullable T> projection) {
+        serverOnly();
+        clientProjection = projection;
+        projectionCache = new DecodeCache<>(PROJECTION_CACHE_SIZE);
+        return this;
+    }
+
+    /**
+     * @return true if this facet's data is kept out of item data sent to clients.
+     *
+     * @see #serverOnly
+     */
+    @Contract(pure = true)
+    public boolean isServerOnly() {
+        return serverOnly;
+    }
+
+    @Nullable Function<T, @Nullable T> getClientProjection() {
+        return clientProjection;
+    }
+
+    /**
+     * @return the cache of encoded client projections, keyed on the stored tag they were projected from.
+     */
+    @Nullable DecodeCache<Tag> getProjectionCache() {
+        return projectionCache;
+    }
+
     /**
      * Creates an NBT predicate from this facet, primarily for use in datagen.
+     * The returned predicate is compiled to only compare this facet's data when matching, but otherwise behaves like a vanilla one.
      *
      * @param expectation the value that's expected in the predicate.
      *
      * @return a new {@link NbtPredicate} that matches this facet with the expected value.
      */
-    @SuppressWarnings("unused") // TODO: Make test for Facet.createPredicate()
     @Contract(value = "_ -> new", pure = true)
     public NbtPredicate createPredicate(T expectation) {
         return createPredicate(expectation, null);
@@ -112,13 +469,13 @@ public final class Facet<T> {
     @Contract(value = "_, _ -> new", pure = true)
     public <P extends Tag> NbtPredicate createPredicate(T expectation, @Nullable Consumer<P> adjustment) {
         var root = new CompoundTag();
-        var parent = getOrCreateParentTag(root, path);
+        var parent = parentPath.resolveOrCreate(root);
         writer.write(parent, name, expectation);
         if (adjustment != null) {
             var tag = parent.get(name);
             if (tag != null) adjustment.accept((P) tag);
         }
-        return new NbtPredicate(root);
+        return new FacetPredicate(root, parentPath, name);
     }
 
     /**
@@ -128,23 +485,22 @@ public final class Facet<T> {
      *
      * @return true if the given stack contains NBT data pertaining to this facet.
      */
-    @Contract(pure = true)
     public boolean isIn(ItemStack stack) {
-        var tag = getParentTag(stack, path);
-        return tag != null && checkContains(tag);
+        var tag = getParentTag(stack);
+        return tag != null && isIn(tag);
     }
 
     /**
      * Retrieves data from the provided stack.
+     * Collections that write through to the stack's data record their changes on the stack the same as {@link #set} does.
      *
      * @param stack the item stack containing the NBT data to retrieve.
      *
      * @return the facet data stored in the stack, or null if no applicable data was present.
      */
-    @Contract(pure = true)
     public @Nullable T get(ItemStack stack) {
-        var tag = getParentTag(stack, path);
-        return tag != null && checkContains(tag) ? reader.read(tag, name) : null;
+        var tag = getParentTag(stack);
+        return tag != null ? bind(read(tag), stack, tag) : null;
     }
 
     /**
@@ -155,7 +511,6 @@ public final class Facet<T> {
      *
      * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
      */
-    @Contract(pure = true)
     public T getOr(ItemStack stack, T fallback) {
         @Nullable T result = get(stack);
         return result != null ? result : fallback;
@@ -169,7 +524,6 @@ public final class Facet<T> {
      *
      * @return the facet data stored in the stack, or the result of the provided fallback if no applicable data was present.
      */
-    @Contract(pure = true)
     public T getOrGet(ItemStack stack, Supplier<T> fallback) {
         @Nullable T result = get(stack);
         return result != null ? result : fallback.get();
@@ -184,7 +538,6 @@ public final class Facet<T> {
      *
      * @throws NoSuchElementException if no applicable data was present in the stack.
      */
-    @Contract(pure = true)
     public T getOrThrow(ItemStack stack) throws NoSuchElementException {
         @Nullable T result = get(stack);
         if (result == null) throw new NoSuchElementException();
@@ -198,16 +551,9 @@ public final class Facet<T> {
      * @param value the value to be written to the stack.
      */
     public void set(ItemStack stack, T value) {
-        var tag = getOrCreateParentTag(stack, path);
-        writer.write(tag, name, value);
-        var valueTag = tag.get(name);
-        if (valueTag == null) {
-            remove(stack);
-        } else if (type != TAG_END && valueTag.getId() != type) {
-            remove(stack);
-            var joinedName = Strings.join(path, ".") + ":" + name;
-            LOGGER.warn("Facet {} tried to write data with wrong NBT type (expected type {}, got {})", joinedName, type, valueTag.getId());
-        }
+        // Writers may remove existing data instead of writing, so the stack is always marked
+        if (!write(getOrCreateParentTag(stack), value)) parentPath.prune(stack);
+        FacetStamps.mark(stack, this);
     }
 
     /**
@@ -255,37 +601,105 @@ public final class Facet<T> {
      * @param stack the stack to remove data from.
      */
     public void remove(ItemStack stack) {
-        if (!stack.hasTag()) return;
-        var root = stack.getTag();
-        assert root != null; // Sanity check; hasTag covers this
-
-        // Special case for empty path
-        if (path.length == 0) {
-            stack.removeTagKey(name);
-            return;
-        }
+        var parent = getParentTag(stack);
+        if (parent == null) return;
+        if (removeFrom(parent)) FacetStamps.mark(stack, this);
+        parentPath.prune(stack);
+    }
+
+    /**
+     * Checks to see if the provided holder contains data that is managed by this facet.
+     *
+     * @param holder the holder containing the NBT data to check.
+     *
+     * @return true if the given holder contains NBT data pertaining to this facet.
+     */
+    public boolean isIn(FacetHolder holder) {
+        var tag = getParentTag(holder);
+        return tag != null && isIn(tag);
+    }
+
+    /**
+     * Retrieves data from the provided holder.
+     * Collections that write through to the holder's data notify the holder of their changes the same as {@link #set} does.
+     *
+     * @param holder the holder containing the NBT data to retrieve.
+     *
+     * @return the facet data stored in the holder, or null if no applicable data was present.
+     */
+    public @Nullable T get(FacetHolder holder) {
+        var tag = getParentTag(holder);
+        return tag != null ? bind(read(tag), holder, tag) : null;
+    }
+
+    /**
+     * Retrieves data from the provided holder.
+     *
+     * @param holder the holder containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the holder, or the provided fallback if no applicable data was present.
+     */
+    public T getOr(FacetHolder holder, T fallback) {
+        @Nullable T result = get(holder);
+        return result != null ? result : fallback;
+    }
+
+    /**
+     * Writes data to the provided holder.
+     *
+     * @param holder the holder to write the provided value to.
+     * @param value the value to be written to the holder.
+     */
+    public void set(FacetHolder holder, T value) {
+        migrate(holder);
+        var root = holder.getOrCreateFacetData();
+        if (!write(parentPath.resolveOrCreate(root), value) && parentPath.prune(root, 0)) holder.setFacetData(null);
+        holder.onFacetDataChanged();
+    }
 
-        // Collect all tags along the path
-        var tags = new CompoundTag[path.length];
-        for (int i = 0; i < tags.length; i++) {
-            var key = path[i];
-            var parent = i == 0 ? root : tags[i - 1];
-            tags[i] = parent.getCompound(key);
+    /**
+     * Removes data from the provided holder.
+     *
+     * @param holder the holder to remove data from.
+     */
+    public void remove(FacetHolder holder) {
+        var parent = getParentTag(holder);
+        if (parent == null || !removeFrom(parent)) return;
+        var root = holder.getFacetData();
+        if (root != null && parentPath.prune(root, 0)) holder.setFacetData(null);
+        holder.onFacetDataChanged();
+    }
+
+    /**
+     * Records the changes made through a bound view. Views remove their data once they're emptied, in which case the parent is pruned
+     * the same as when the data is removed through the facet, and the parent is put back in place if the view is filled again.
+     */
+    private abstract class ViewBinding implements Runnable {
+        private final CompoundTag parent;
+        private boolean pruned;
+
+        private ViewBinding(CompoundTag parent) {
+            this.parent = parent;
         }
 
-        // Remove the data itself
-        int lastIndex = tags.length - 1;
-        tags[lastIndex].remove(name);
-
-        // Recursively remove empty tags, starting from the end
-        for (int i = lastIndex; i >= 0; i--) {
-            if (!tags[i].isEmpty()) return;
-            var key = path[i];
-            if (i == 0) {
-                stack.removeTagKey(key);
-            } else {
-                tags[i - 1].remove(key);
+        abstract void prune();
+
+        abstract void restore();
+
+        abstract void changed();
+
+        @Override
+        public void run() {
+            invalidate(parent);
+            if (!checkContains(parent)) {
+                if (!pruned) prune();
+                pruned = true;
+            } else if (pruned) {
+                restore();
+                pruned = false;
             }
+            changed();
         }
     }
 
@@ -0,0 +1,134 @@
+package dev.denimred.littlethings.facets;
+
+import it.unimi.dsi.fastutil.Hash;
+import net.minecraft.nbt.NumericTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * An equivalence of item stacks that only takes a declared set of significant facets into account, ignoring stack sizes and all other item data.
+ * <p>
+ * This can be used as a {@link Hash.Strategy} for custom hash collections, and as a {@link Comparator} for sorting.
+ * Hashes are cached per stack and discarded whenever a facet modifies the stack (including through the collections it returns),
+ * so repeated lookups and comparisons don't rehash any data.
+ * Changes that bypass facets (such as direct NBT edits) aren't noticed unless the stack's whole tag is replaced.
+ * <pre>{@code
+ * static final FacetEquivalence MERGEABLE = FacetEquivalence.of(OWNER, CHARGES);
+ * Map<ItemStack, Integer> totals = new Object2ObjectOpenCustomHashMap<>(MERGEABLE);
+ * }</pre>
+ */
+public final class FacetEquivalence implements Hash.Strategy<ItemStack>, Comparator<ItemStack> {
+    private final Facet<?>[] facets;
+
+    private FacetEquivalence(Facet<?>[] facets) {
+        this.facets = facets;
+    }
+
+    /**
+     * Constructs a new equivalence over the given significant facets.
+     *
+     * @param first the first significant facet, exists to ensure at least one facet is present in the equivalence.
+     * @param rest the remaining significant facets.
+     *
+     * @return a new facet equivalence.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static FacetEquivalence of(Facet<?> first, Facet<?>... rest) {
+        var facets = new Facet<?>[rest.length + 1];
+        facets[0] = first;
+        System.arraycopy(rest, 0, facets, 1, rest.length);
+        return new FacetEquivalence(facets);
+    }
+
+    private static @Nullable Tag dataTag(Facet<?> facet, ItemStack stack) {
+        var parent = facet.getParentTag(stack);
+        return parent != null ? facet.dataTag(parent) : null;
+    }
+
+    /**
+     * Hashes a single facet's data on the stack, which is cached per stack and shared by every equivalence over that facet.
+     */
+    private static int facetHash(Facet<?> facet, ItemStack stack) {
+        return FacetStamps.cachedHash(stack, facet, s -> Objects.hashCode(dataTag(facet, s)));
+    }
+
+    private int computeHash(ItemStack stack) {
+        int hash = Item.getId(stack.getItem());
+        for (var facet : facets) hash = 31 * hash + Objects.hashCode(dataTag(facet, stack));
+        return hash;
+    }
+
+    /**
+     * Hashes the provided stack's item and significant facet data.
+     *
+     * @param stack the stack to hash.
+     *
+     * @return the hash of the stack, which is 0 for null and empty stacks.
+     */
+    @Override
+    public int hashCode(@Nullable ItemStack stack) {
+        if (stack == null || stack.isEmpty()) return 0;
+        return FacetStamps.cachedHash(stack, this, this::computeHash);
+    }
+
+    /**
+     * Checks to see if the provided stacks have the same item and the same data for every significant facet.
+     *
+     * @param a the first stack to compare.
+     * @param b the second stack to compare.
+     *
+     * @return true if the stacks are equivalent; null and empty stacks are only equivalent to each other.
+     */
+    @Override
+    public boolean equals(@Nullable ItemStack a, @Nullable ItemStack b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        if (a.isEmpty() || b.isEmpty()) return a.isEmpty() && b.isEmpty();
+        if (a.getItem() != b.getItem() || hashCode(a) != hashCode(b)) return false;
+        for (var facet : facets) {
+            if (!Objects.equals(dataTag(facet, a), dataTag(facet, b))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Orders the provided stacks by item, then by the data of each significant facet in declaration order.
+     * Missing data is ordered first, numbers and strings are ordered naturally, and other data is ordered arbitrarily but consistently.
+     * Only returns 0 for stacks that are {@linkplain #equals(ItemStack, ItemStack) equivalent}.
+     *
+     * @param a the first stack to compare.
+     * @param b the second stack to compare.
+     *
+     * @return a negative number, zero, or a positive number if the first stack is ordered before, the same as, or after the second stack.
+     */
+    @Override
+    public int compare(ItemStack a, ItemStack b) {
+        if (a.isEmpty() || b.isEmpty()) return Boolean.compare(!a.isEmpty(), !b.isEmpty());
+        int result = Integer.compare(Item.getId(a.getItem()), Item.getId(b.getItem()));
+        for (int i = 0; result == 0 && i < facets.length; i++) result = compareFacet(facets[i], a, b);
+        return result;
+    }
+
+    private static int compareFacet(Facet<?> facet, ItemStack a, ItemStack b) {
+        var tagA = dataTag(facet, a);
+        var tagB = dataTag(facet, b);
+        if (tagA == null || tagB == null) return tagA == tagB ? 0 : tagA == null ? -1 : 1;
+        if (tagA.getId() != tagB.getId()) return Byte.compare(tagA.getId(), tagB.getId());
+        if (tagA instanceof StringTag) return tagA.getAsString().compareTo(tagB.getAsString());
+        if (tagA instanceof NumericTag numA && tagB instanceof NumericTag numB) {
+            int result = Double.compare(numA.getAsDouble(), numB.getAsDouble());
+            if (result != 0) return result;
+        }
+        // Other data is ordered by its cached hash, and only compared in full when the hashes collide
+        int result = Integer.compare(facetHash(facet, a), facetHash(facet, b));
+        if (result != 0 || tagA.equals(tagB)) return result;
+        return tagA.getAsString().compareTo(tagB.getAsString());
+    }
+}
@@ -0,0 +1,224 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A set of {@linkplain Facet}s that share a common path prefix, which can be read and written together.
+ * <p>
+ * Binding the group to a stack resolves the shared parent tag once, after which every member facet only has to walk
+ * the remainder of its own path. Removals don't prune empty parents immediately; that happens once, when the view is closed.
+ * <pre>{@code
+ * try (var view = GROUP.bind(stack)) {
+ *     view.set(OWNER, owner);
+ *     view.remove(COOLDOWN);
+ * }
+ * }</pre>
+ */
+public final class FacetGroup {
+    private final FacetPath prefix;
+    private final Set<Facet<?>> members;
+    private final Facet<?>[] nested;
+
+    private FacetGroup(FacetPath prefix, Facet<?>[] members) {
+        this.prefix = prefix;
+        this.members = Set.of(members);
+        this.nested = Arrays.stream(members).filter(f -> f.parentPath.depth() > prefix.depth()).toArray(Facet<?>[]::new);
+    }
+
+    /**
+     * Constructs a new group out of the given facets. The shared prefix is the longest path that all members have in common.
+     *
+     * @param first the first member, exists to ensure at least one member is present in the group.
+     * @param rest the remaining members of the group.
+     *
+     * @return a new facet group.
+     *
+     * @throws IllegalArgumentException if the same facet is provided more than once.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static FacetGroup of(Facet<?> first, Facet<?>... rest) {
+        var members = new Facet<?>[rest.length + 1];
+        members[0] = first;
+        System.arraycopy(rest, 0, members, 1, rest.length);
+
+        var path = first.path;
+        int length = path.length;
+        for (var member : rest) {
+            int i = 0;
+            while (i < length && i < member.path.length && path[i].equals(member.path[i])) i++;
+            length = i;
+        }
+        return new FacetGroup(FacetPath.of(Arrays.copyOf(path, length)), members);
+    }
+
+    /**
+     * Checks to see if the provided facet is a member of this group.
+     *
+     * @param facet the facet to check.
+     *
+     * @return true if the facet was provided when this group was constructed.
+     */
+    @Contract(pure = true)
+    public boolean contains(Facet<?> facet) {
+        return members.contains(facet);
+    }
+
+    /**
+     * Binds this group to the provided stack. The returned view is meant to be short-lived,
+     * as it holds on to the resolved parent tag and won't notice if the stack's tag is replaced.
+     *
+     * @param stack the item stack to read and write member facets on.
+     *
+     * @return a new view of this group's facets on the stack.
+     */
+    @Contract(value = "_ -> new", pure = true)
+    public View bind(ItemStack stack) {
+        return new View(stack);
+    }
+
+    private void checkMember(Facet<?> facet) {
+        if (!members.contains(facet)) throw new IllegalArgumentException("Facet " + facet.name + " is not a member of this group");
+    }
+
+    /**
+     * A view of a {@link FacetGroup} bound to a single stack.
+     *
+     * @see FacetGroup#bind
+     */
+    public final class View implements AutoCloseable {
+        private final ItemStack stack;
+        private @Nullable CompoundTag parent;
+        private boolean resolved;
+        private boolean needsPrune;
+
+        private View(ItemStack stack) {
+            this.stack = stack;
+        }
+
+        private @Nullable CompoundTag getParent() {
+            if (!resolved) {
+                parent = prefix.resolve(stack.getTag());
+                resolved = true;
+            }
+            return parent;
+        }
+
+        private CompoundTag getOrCreateParent() {
+            var tag = getParent();
+            if (tag == null) parent = tag = prefix.resolveOrCreate(stack.getOrCreateTag());
+            return tag;
+        }
+
+        private void migrate(Facet<?> facet) {
+            // Migrations may restructure the data, so the shared parent has to be resolved again
+            if (facet.migrate(stack)) resolved = false;
+        }
+
+        private @Nullable CompoundTag getMemberParent(Facet<?> facet) {
+            checkMember(facet);
+            migrate(facet);
+            return facet.parentPath.resolve(getParent(), prefix.depth());
+        }
+
+        /**
+         * Checks to see if the bound stack contains data that is managed by the provided facet.
+         *
+         * @param facet the member facet to check.
+         *
+         * @return true if the bound stack contains NBT data pertaining to the facet.
+         *
+         * @see Facet#isIn
+         */
+        public boolean isIn(Facet<?> facet) {
+            var tag = getMemberParent(facet);
+            return tag != null && facet.isIn(tag);
+        }
+
+        /**
+         * Retrieves data from the bound stack.
+         *
+         * @param facet the member facet to read.
+         * @param <T> the type that the facet handles.
+         *
+         * @return the facet data stored in the bound stack, or null if no applicable data was present.
+         *
+         * @see Facet#get
+         */
+        public <T> @Nullable T get(Facet<T> facet) {
+            var tag = getMemberParent(facet);
+            return tag != null ? facet.read(tag) : null;
+        }
+
+        /**
+         * Retrieves data from the bound stack.
+         *
+         * @param facet the member facet to read.
+         * @param fallback the value to return if no data was present.
+         * @param <T> the type that the facet handles.
+         *
+         * @return the facet data stored in the bound stack, or the provided fallback if no applicable data was present.
+         *
+         * @see Facet#getOr
+         */
+        public <T> T getOr(Facet<T> facet, T fallback) {
+            @Nullable T result = get(facet);
+            return result != null ? result : fallback;
+        }
+
+        /**
+         * Writes data to the bound stack.
+         *
+         * @param facet the member facet to write.
+         * @param value the value to be written to the stack.
+         * @param <T> the type that the facet handles.
+         *
+         * @see Facet#set
+         */
+        public <T> void set(Facet<T> facet, T value) {
+            checkMember(facet);
+            migrate(facet);
+            var tag = facet.parentPath.resolveOrCreate(getOrCreateParent(), prefix.depth());
+            if (facet.write(tag, value)) {
+                FacetStamps.mark(stack, facet);
+            } else {
+                needsPrune = true;
+            }
+        }
+
+        /**
+         * Removes data from the bound stack. Empty parents are pruned when this view is closed.
+         *
+         * @param facet the member facet to remove.
+         *
+         * @see Facet#remove
+         */
+        public void remove(Facet<?> facet) {
+            var tag = getMemberParent(facet);
+            if (tag != null && facet.removeFrom(tag)) {
+                FacetStamps.mark(stack, facet);
+                needsPrune = true;
+            }
+        }
+
+        /**
+         * Prunes any parent tags that were left empty by removals, once for the whole group.
+         */
+        @Override
+        public void close() {
+            if (!needsPrune) return;
+            needsPrune = false;
+            var tag = getParent();
+            if (tag == null) return;
+            for (var facet : nested) facet.parentPath.prune(tag, prefix.depth());
+            prefix.prune(stack);
+            resolved = false;
+            parent = null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import org.jetbrains.annotations.ApiStatus.OverrideOnly;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Something other than an item stack that keeps facet data in a compound tag of its own, such as an entity or a block entity.
+ * <p>
+ * Facets read and write the holder's tag directly, so accessing a single facet only touches that facet's path,
+ * instead of saving and loading the whole object. The tag only has to be persisted alongside the holder, which {@link FacetHolders} helps with.
+ * Holders are remembered by facets with migrations, so implementations shouldn't override {@link Object#equals}.
+ *
+ * @see FacetHolders
+ */
+public interface FacetHolder {
+    /**
+     * @return the root of the holder's facet data, or null if it has none.
+     */
+    @Nullable CompoundTag getFacetData();
+
+    /**
+     * Replaces the root of the holder's facet data.
+     *
+     * @param data the new root, or null to remove all facet data.
+     */
+    void setFacetData(@Nullable CompoundTag data);
+
+    /**
+     * @return the root of the holder's facet data, which is created if the holder has none.
+     */
+    default CompoundTag getOrCreateFacetData() {
+        var data = getFacetData();
+        if (data == null) setFacetData(data = new CompoundTag());
+        return data;
+    }
+
+    /**
+     * Called after a facet changed the holder's data, for example to mark the holder as needing to be saved.
+     */
+    @OverrideOnly
+    default void onFacetDataChanged() {}
+}
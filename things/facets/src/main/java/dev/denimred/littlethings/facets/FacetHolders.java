@@ -0,0 +1,69 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * Persists the facet data of {@linkplain FacetHolder facet holders} as part of their saved form.
+ * <p>
+ * This library doesn't ship any adapters for entities or block entities, since the method of hooking into them differs depending on the mod loader,
+ * so consumers have to write them. To make use of it, the holder's save method must pass its output through {@link #save},
+ * and its load method must pass its input through {@link #load} (for example, with mixins that inject into
+ * {@link net.minecraft.world.entity.Entity#saveWithoutId} and {@link net.minecraft.world.entity.Entity#load}).
+ * <p>
+ * Block entities also send their data to clients in update tags, which must be passed through {@link #saveForClient} instead,
+ * so that server-only facets stay on the server. Entities have no such tag, so their facet data is only ever kept on the server.
+ */
+public final class FacetHolders {
+    /**
+     * The key under which facet data is stored in the saved form of holders.
+     */
+    public static final String KEY = "LittleThingsFacets";
+
+    private FacetHolders() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Writes a copy of the holder's facet data to its saved form, if it has any.
+     * The data is copied, since saved forms can be serialized on other threads.
+     *
+     * @param holder the holder that is being saved.
+     * @param saved the saved form of the holder.
+     */
+    public static void save(FacetHolder holder, CompoundTag saved) {
+        var data = holder.getFacetData();
+        if (data == null || data.isEmpty()) return;
+        saved.put(KEY, data.copy());
+        FacetPayloadStore.markSaved(data);
+    }
+
+    /**
+     * Writes the holder's facet data to a tag that is sent to clients, such as the update tag of a block entity,
+     * replacing any data that {@link #save} already wrote to it. Server-only facets are left out or projected,
+     * and deduplicated payloads are resolved, the same as in {@linkplain NetworkFacets#prepareForNetwork item data}.
+     *
+     * @param holder the holder that is being sent.
+     * @param tag the tag that is sent to clients.
+     */
+    public static void saveForClient(FacetHolder holder, CompoundTag tag) {
+        var data = holder.getFacetData();
+        var prepared = data != null ? NetworkFacets.prepareForNetwork(data) : null;
+        if (prepared == null || prepared.isEmpty()) {
+            tag.remove(KEY);
+        } else {
+            // Prepared data may share tags with the holder's data, which can be changed while the tag is being sent
+            tag.put(KEY, prepared.copy());
+        }
+    }
+
+    /**
+     * Replaces the holder's facet data with a copy of the data in its saved form, removing it if none is present.
+     * The data is copied, since saved forms can be reused (for example, to spawn multiple entities from a single tag).
+     *
+     * @param holder the holder that is being loaded.
+     * @param saved the saved form of the holder.
+     */
+    public static void load(FacetHolder holder, CompoundTag saved) {
+        holder.setFacetData(saved.get(KEY) instanceof CompoundTag data && !data.isEmpty() ? data.copy() : null);
+    }
+}
@@ -0,0 +1,269 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.world.Container;
+import net.minecraft.world.ContainerListener;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An index of which slots of a {@link Container} hold data for a fixed set of facets, along with aggregates over that data.
+ * <p>
+ * The index is updated incrementally, and only the slots that changed since the last query are decoded again.
+ * Stacks that are modified through facets notify the indexes that hold them when they're {@linkplain FacetStamps stamped}.
+ * Replaced stacks are found by listening to the container if it's a {@link SimpleContainer}, in which case the slots are only checked
+ * after the container reported a change; other containers have their slots checked for replaced stacks on every query.
+ * Changes that bypass both (such as direct NBT edits) aren't noticed automatically, so those should be followed by {@link #slotChanged}
+ * or {@link #invalidate}.
+ * <p>
+ * Indexes aren't thread-safe, and are meant to be owned by whatever thread owns the container. Facet writes may still happen
+ * on other threads, since those are only recorded until the next query. Indexes are meant to be long-lived, since a listener
+ * stays registered with the container for as long as the container exists.
+ */
+public final class FacetIndex {
+    private final Container container;
+    private final Tracked[] tracked;
+    private final boolean listening;
+    private final Map<ItemStack, Integer> slotsByStack = new IdentityHashMap<>();
+    private final Set<ItemStack> markedStacks = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final BitSet changedSlots = new BitSet();
+    private volatile boolean containerChanged = true;
+    private @Nullable ItemStack[] stacks = new ItemStack[0];
+
+    private FacetIndex(Container container, Facet<?>[] facets) {
+        this.container = container;
+        this.tracked = new Tracked[facets.length];
+        for (int i = 0; i < facets.length; i++) tracked[i] = new Tracked(facets[i]);
+        if (container instanceof SimpleContainer simple) {
+            simple.addListener(new Listener(this));
+            listening = true;
+        } else {
+            listening = false;
+        }
+    }
+
+    /**
+     * Constructs a new index over the provided container.
+     *
+     * @param container the container to index.
+     * @param first the first facet to index, exists to ensure at least one facet is present in the index.
+     * @param rest the remaining facets to index.
+     *
+     * @return a new facet index, which is built on the first query.
+     */
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static FacetIndex of(Container container, Facet<?> first, Facet<?>... rest) {
+        var facets = new Facet<?>[rest.length + 1];
+        facets[0] = first;
+        System.arraycopy(rest, 0, facets, 1, rest.length);
+        return new FacetIndex(container, facets);
+    }
+
+    /**
+     * Reindexes a single slot immediately, which should be called after making changes that don't go through facets.
+     *
+     * @param slot the slot that was changed.
+     */
+    public void slotChanged(int slot) {
+        if (slot < stacks.length) reindex(slot, container.getItem(slot));
+    }
+
+    /**
+     * Forces every slot to be reindexed on the next query.
+     */
+    public void invalidate() {
+        changedSlots.set(0, stacks.length);
+        containerChanged = true;
+    }
+
+    /**
+     * Records that a stack held by this index was modified through a facet, so that its slot is reindexed on the next query.
+     * May be called from any thread.
+     */
+    void stackMarked(ItemStack stack) {
+        synchronized (markedStacks) {
+            markedStacks.add(stack);
+        }
+    }
+
+    private Tracked get(Facet<?> facet) {
+        for (var t : tracked) {
+            if (t.facet == facet) return t;
+        }
+        throw new IllegalArgumentException("Facet " + facet.name + " is not indexed");
+    }
+
+    private void refresh() {
+        int size = container.getContainerSize();
+        if (size != stacks.length) {
+            for (var stack : slotsByStack.keySet()) FacetStamps.untrack(stack, this);
+            slotsByStack.clear();
+            stacks = new ItemStack[size];
+            for (var t : tracked) t.reset(size);
+            changedSlots.set(0, size);
+        }
+
+        if (containerChanged || !listening) {
+            containerChanged = false;
+            for (int slot = 0; slot < size; slot++) {
+                if (container.getItem(slot) != stacks[slot]) changedSlots.set(slot);
+            }
+        }
+        synchronized (markedStacks) {
+            for (var stack : markedStacks) {
+                var slot = slotsByStack.get(stack);
+                if (slot != null) changedSlots.set(slot);
+            }
+            markedStacks.clear();
+        }
+        for (int slot = changedSlots.nextSetBit(0); slot >= 0; slot = changedSlots.nextSetBit(slot + 1)) {
+            reindex(slot, container.getItem(slot));
+        }
+        changedSlots.clear();
+    }
+
+    private void reindex(int slot, ItemStack stack) {
+        var old = stacks[slot];
+        if (old != stack) {
+            if (old != null && slotsByStack.remove(old, slot)) FacetStamps.untrack(old, this);
+            // Empty slots all share the same stack, which is never modified
+            if (!stack.isEmpty()) {
+                slotsByStack.put(stack, slot);
+                FacetStamps.track(stack, this);
+            }
+            stacks[slot] = stack;
+        }
+        for (var t : tracked) t.update(slot, stack);
+    }
+
+    /**
+     * Checks to see if any slot holds data for the provided facet.
+     *
+     * @param facet the indexed facet to check.
+     *
+     * @return true if at least one slot holds data for the facet.
+     */
+    public boolean contains(Facet<?> facet) {
+        refresh();
+        return !get(facet).slots.isEmpty();
+    }
+
+    /**
+     * Counts the slots that hold data for the provided facet.
+     *
+     * @param facet the indexed facet to count.
+     *
+     * @return the number of slots with data for the facet.
+     */
+    public int count(Facet<?> facet) {
+        refresh();
+        return get(facet).slots.cardinality();
+    }
+
+    /**
+     * Sums the values of a numeric facet across every slot, ignoring stack sizes.
+     *
+     * @param facet the indexed facet to sum.
+     *
+     * @return the sum of the facet's values as longs, or 0 if no slot holds data for it.
+     */
+    public long sum(Facet<? extends Number> facet) {
+        refresh();
+        return get(facet).sum;
+    }
+
+    /**
+     * Finds the first slot that holds data for the provided facet.
+     *
+     * @param facet the indexed facet to look for.
+     *
+     * @return the lowest slot with data for the facet, or -1 if there are none.
+     */
+    public int firstSlot(Facet<?> facet) {
+        refresh();
+        return get(facet).slots.nextSetBit(0);
+    }
+
+    /**
+     * Finds every slot that holds data for the provided facet.
+     *
+     * @param facet the indexed facet to look for.
+     *
+     * @return the slots with data for the facet, in ascending order.
+     */
+    public int[] slots(Facet<?> facet) {
+        refresh();
+        return get(facet).slots.stream().toArray();
+    }
+
+    /**
+     * Finds every slot that holds data for the provided facet that is equal to the provided value.
+     * Only slots that hold data for the facet are decoded.
+     *
+     * @param facet the indexed facet to look for.
+     * @param value the value to compare against.
+     * @param <T> the type that the facet handles.
+     *
+     * @return the slots with matching data, in ascending order.
+     */
+    public <T> int[] slotsWith(Facet<T> facet, T value) {
+        refresh();
+        var slots = get(facet).slots;
+        return slots.stream().filter(slot -> Objects.equals(facet.get(Objects.requireNonNull(stacks[slot])), value)).toArray();
+    }
+
+    /**
+     * Only weakly references its index, so that the container doesn't keep the index alive.
+     */
+    private static final class Listener implements ContainerListener {
+        private final WeakReference<FacetIndex> index;
+
+        private Listener(FacetIndex index) {
+            this.index = new WeakReference<>(index);
+        }
+
+        @Override
+        public void containerChanged(Container container) {
+            var index = this.index.get();
+            if (index != null) index.containerChanged = true;
+        }
+    }
+
+    private static final class Tracked {
+        private final Facet<?> facet;
+        private final BitSet slots = new BitSet();
+        private long[] contributions = new long[0];
+        private long sum;
+
+        private Tracked(Facet<?> facet) {
+            this.facet = facet;
+        }
+
+        private void reset(int size) {
+            slots.clear();
+            contributions = new long[size];
+            sum = 0;
+        }
+
+        private void update(int slot, ItemStack stack) {
+            sum -= contributions[slot];
+            contributions[slot] = 0;
+            @Nullable Object value = stack.isEmpty() ? null : facet.get(stack);
+            slots.set(slot, value != null);
+            if (value instanceof Number number) {
+                contributions[slot] = number.longValue();
+                sum += contributions[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dev.denimred.littlethings.facets;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the keys that facets use, so that the compounds of millions of stacks don't each keep their own copy of the same strings.
+ * <p>
+ * Facets intern their path and name when constructed, so every compound that facets create shares the same key instances.
+ * Keys of loaded data are read as new strings instead, which {@link #canonicalize} swaps for the shared instances.
+ * This class doesn't hook into NBT reading by itself, since the method of doing so differs depending on the mod loader.
+ * To make use of it, the keys read by {@link net.minecraft.nbt.CompoundTag} must be passed through {@link #canonicalize}
+ * (for example, with a mixin that modifies the return value of {@code CompoundTag.readNamedTagName}).
+ * <p>
+ * Only the keys of constructed facets are pooled, so arbitrary keys of untrusted data can't make the pool grow.
+ */
+public final class FacetKeys {
+    private static final Map<String, String> KEYS = new ConcurrentHashMap<>();
+
+    private FacetKeys() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Adds the key to the pool.
+     *
+     * @return the canonical instance of the key.
+     */
+    static String intern(String key) {
+        return KEYS.computeIfAbsent(key, String::intern);
+    }
+
+    /**
+     * Swaps the provided key for its canonical instance, if it's the key of any facet.
+     *
+     * @param key the key that was read.
+     *
+     * @return the canonical instance of the key, or the key itself if no facet uses it.
+     */
+    @Contract(pure = true)
+    public static String canonicalize(String key) {
+        var canonical = KEYS.get(key);
+        return canonical != null ? canonical : key;
+    }
+}
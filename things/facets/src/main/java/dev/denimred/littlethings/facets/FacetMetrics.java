@@ -0,0 +1,121 @@
+package dev.denimred.littlethings.facets;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional runtime instrumentation for facets, which records how often each facet is accessed and how long its data takes to decode and encode.
+ * <p>
+ * Instrumentation is disabled by default, in which case every facet operation only pays for a single volatile read.
+ * Facets are only weakly referenced, so recording never keeps them alive.
+ *
+ * @see FacetMetricsCommand
+ */
+public final class FacetMetrics {
+    private static final Map<Facet<?>, Counters> COUNTERS = new WeakHashMap<>();
+    private static volatile boolean enabled;
+
+    private FacetMetrics() {
+        throw new AssertionError();
+    }
+
+    /**
+     * @return true if facet operations are currently being recorded.
+     */
+    @Contract(pure = true)
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables recording. Previously recorded numbers are kept either way.
+     *
+     * @param enabled whether facet operations should be recorded.
+     */
+    public static void setEnabled(boolean enabled) {
+        FacetMetrics.enabled = enabled;
+    }
+
+    /**
+     * Discards every recorded number.
+     */
+    public static void reset() {
+        synchronized (COUNTERS) {
+            COUNTERS.values().forEach(Counters::reset);
+        }
+    }
+
+    static Counters counters(Facet<?> facet) {
+        synchronized (COUNTERS) {
+            return COUNTERS.computeIfAbsent(facet, f -> new Counters());
+        }
+    }
+
+    /**
+     * Captures the numbers recorded for every facet that was accessed while recording was enabled.
+     *
+     * @return a snapshot of every facet's numbers, busiest facets first.
+     */
+    @Contract(value = "-> new", pure = true)
+    public static @Unmodifiable List<Stats> snapshot() {
+        var stats = new ArrayList<Stats>();
+        synchronized (COUNTERS) {
+            COUNTERS.forEach((facet, counters) -> stats.add(counters.snapshot(facet.describe())));
+        }
+        stats.sort(Comparator.comparingLong(Stats::operations).reversed());
+        return List.copyOf(stats);
+    }
+
+    /**
+     * A snapshot of the numbers recorded for a single facet.
+     *
+     * @param facet the path and name of the facet.
+     * @param reads the number of reads of present data.
+     * @param writes the number of writes.
+     * @param removes the number of removals that actually removed data.
+     * @param failedReads the number of reads where data was present but couldn't be decoded.
+     * @param failedWrites the number of writes that were discarded because nothing or the wrong tag type was written.
+     * @param decodeNanos the total time spent decoding data, in nanoseconds.
+     * @param encodeNanos the total time spent encoding data, in nanoseconds.
+     */
+    public record Stats(String facet, long reads, long writes, long removes, long failedReads, long failedWrites, long decodeNanos, long encodeNanos) {
+        /**
+         * @return the total number of reads, writes, and removals.
+         */
+        @Contract(pure = true)
+        public long operations() {
+            return reads + writes + removes;
+        }
+    }
+
+    static final class Counters {
+        final LongAdder reads = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder removes = new LongAdder();
+        final LongAdder failedReads = new LongAdder();
+        final LongAdder failedWrites = new LongAdder();
+        final LongAdder decodeNanos = new LongAdder();
+        final LongAdder encodeNanos = new LongAdder();
+
+        private void reset() {
+            reads.reset();
+            writes.reset();
+            removes.reset();
+            failedReads.reset();
+            failedWrites.reset();
+            decodeNanos.reset();
+            encodeNanos.reset();
+        }
+
+        private Stats snapshot(String facet) {
+            return new Stats(facet, reads.sum(), writes.sum(), removes.sum(), failedReads.sum(), failedWrites.sum(), decodeNanos.sum(), encodeNanos.sum());
+        }
+    }
+}
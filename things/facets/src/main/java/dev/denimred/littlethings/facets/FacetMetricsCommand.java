@@ -0,0 +1,81 @@
+package dev.denimred.littlethings.facets;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.TextComponent;
+
+import static dev.denimred.littlethings.facets.Facet.LOGGER;
+
+/**
+ * A server command for controlling and inspecting {@link FacetMetrics}:
+ * <ul>
+ *     <li>{@code /facets metrics enable|disable} toggles recording.</li>
+ *     <li>{@code /facets metrics reset} discards recorded numbers.</li>
+ *     <li>{@code /facets metrics dump [limit]} shows the busiest facets and logs every facet's numbers.</li>
+ * </ul>
+ * This class doesn't register the command by itself, since the method of doing so differs depending on the mod loader.
+ * To make use of it, {@link #register} must be called with the server's command dispatcher.
+ */
+public final class FacetMetricsCommand {
+    private static final int DEFAULT_LIMIT = 10;
+
+    private FacetMetricsCommand() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Registers the command, which requires permission level 2.
+     *
+     * @param dispatcher the server's command dispatcher.
+     */
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        dispatcher.register(Commands.literal("facets").requires(source -> source.hasPermission(2)).then(Commands.literal("metrics")
+                .then(Commands.literal("enable").executes(ctx -> setEnabled(ctx.getSource(), true)))
+                .then(Commands.literal("disable").executes(ctx -> setEnabled(ctx.getSource(), false)))
+                .then(Commands.literal("reset").executes(ctx -> reset(ctx.getSource())))
+                .then(Commands.literal("dump").executes(ctx -> dump(ctx.getSource(), DEFAULT_LIMIT))
+                        .then(Commands.argument("limit", IntegerArgumentType.integer(1))
+                                .executes(ctx -> dump(ctx.getSource(), IntegerArgumentType.getInteger(ctx, "limit")))))));
+    }
+
+    private static int setEnabled(CommandSourceStack source, boolean enabled) {
+        FacetMetrics.setEnabled(enabled);
+        source.sendSuccess(new TextComponent("Facet metrics " + (enabled ? "enabled" : "disabled")), true);
+        return 1;
+    }
+
+    private static int reset(CommandSourceStack source) {
+        FacetMetrics.reset();
+        source.sendSuccess(new TextComponent("Facet metrics reset"), true);
+        return 1;
+    }
+
+    private static int dump(CommandSourceStack source, int limit) {
+        var snapshot = FacetMetrics.snapshot();
+        if (snapshot.isEmpty()) {
+            source.sendSuccess(new TextComponent("No facet metrics recorded" + (FacetMetrics.isEnabled() ? "" : " (recording is disabled)")), false);
+            return 0;
+        }
+        LOGGER.info("Facet metrics for {} facets:", snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            var line = format(snapshot.get(i));
+            LOGGER.info("  {}", line);
+            if (i < limit) source.sendSuccess(new TextComponent(line), false);
+        }
+        if (snapshot.size() > limit) source.sendSuccess(new TextComponent("...and " + (snapshot.size() - limit) + " more, see the log for details"), false);
+        return snapshot.size();
+    }
+
+    private static String format(FacetMetrics.Stats stats) {
+        return "%s: %d reads (%d failed, %s decoding), %d writes (%d failed, %s encoding), %d removes".formatted(stats.facet(),
+                stats.reads(), stats.failedReads(), formatNanos(stats.decodeNanos()),
+                stats.writes(), stats.failedWrites(), formatNanos(stats.encodeNanos()),
+                stats.removes());
+    }
+
+    private static String formatNanos(long nanos) {
+        return nanos >= 1_000_000 ? "%.1f ms".formatted(nanos / 1e6) : "%.1f us".formatted(nanos / 1e3);
+    }
+}
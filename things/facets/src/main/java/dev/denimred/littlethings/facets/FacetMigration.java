@@ -0,0 +1,99 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.ApiStatus.OverrideOnly;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * A single step that upgrades a facet's data from an older layout.
+ * <p>
+ * Steps are applied in declaration order the first time a stack is accessed through the facet, and must be no-ops for data that is
+ * already in the newer layout (for example, by only acting when data is found at an old path or with an old tag type).
+ * This keeps the facet's data version implicit in the data itself, so no version marker has to be stored on the stack,
+ * which would otherwise stop migrated and unmigrated stacks from stacking together.
+ *
+ * @see Facet#withMigrations
+ */
+@FunctionalInterface
+public interface FacetMigration {
+    /**
+     * Upgrades the facet's data in the provided item data, if it is in the layout that this step handles.
+     *
+     * @param facet the facet that is being migrated, which describes the current layout.
+     * @param root the root of the stack's item data.
+     *
+     * @return true if any data was changed.
+     */
+    @OverrideOnly
+    boolean migrate(Facet<?> facet, CompoundTag root);
+
+    /**
+     * Creates a migration step for a facet that was moved from another path.
+     * Data at the old path is moved to the facet's current path, unless the current path already holds data.
+     *
+     * @param oldPathFirst the first element of the old path.
+     * @param oldPathRem the remaining elements of the old path; the last element is the old name.
+     *
+     * @return a new migration step.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    static FacetMigration movedFrom(String oldPathFirst, String... oldPathRem) {
+        int remLength = oldPathRem.length;
+        var oldKeys = new String[remLength];
+        String oldName;
+        if (remLength == 0) {
+            oldName = oldPathFirst;
+        } else {
+            oldKeys[0] = oldPathFirst;
+            System.arraycopy(oldPathRem, 0, oldKeys, 1, remLength - 1);
+            oldName = oldPathRem[remLength - 1];
+        }
+        var oldPath = FacetPath.of(oldKeys);
+        return (facet, root) -> {
+            var oldParent = oldPath.resolve(root);
+            var data = oldParent != null ? oldParent.get(oldName) : null;
+            if (data == null) return false;
+            oldParent.remove(oldName);
+            var parent = facet.parentPath.resolveOrCreate(root);
+            if (!parent.contains(facet.name)) parent.put(facet.name, data);
+            oldPath.prune(root, 0);
+            return true;
+        };
+    }
+
+    /**
+     * Creates a migration step that converts the facet's data in-place, typically to change its tag type.
+     *
+     * @param converter the function that converts data in the old layout, returning null for data that is already current.
+     *
+     * @return a new migration step.
+     */
+    @Contract(value = "_ -> new", pure = true)
+    static FacetMigration converted(Function<Tag, @Nullable Tag> converter) {
+        return (facet, root) -> {
+            var parent = facet.parentPath.resolve(root);
+            var data = parent != null ? parent.get(facet.name) : null;
+            if (data == null) return false;
+            var converted = converter.apply(data);
+            if (converted == null) return false;
+            parent.put(facet.name, converted);
+            return true;
+        };
+    }
+
+    /**
+     * Creates a migration step for a facet that became a {@link CompressedFacet}, which compresses data that was stored uncompressed.
+     * Only works for facets whose compressed payload is the tag that was previously stored, such as compound tag and codec facets.
+     *
+     * @return a new migration step.
+     */
+    @Contract(value = "-> new", pure = true)
+    static FacetMigration compressed() {
+        return converted(tag -> tag instanceof ByteArrayTag ? null : CompressedFacet.deflate(tag));
+    }
+}
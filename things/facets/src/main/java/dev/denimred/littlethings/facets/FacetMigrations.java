@@ -0,0 +1,70 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The migration steps of a single facet, along with a record of which stacks and holders have already been migrated.
+ * <p>
+ * A stack or holder is remembered together with its root tag, so ones that had their whole tag replaced are checked again.
+ * They are only weakly referenced, so the record never keeps them alive.
+ */
+final class FacetMigrations {
+    private final FacetMigration[] steps;
+    private final Map<Object, CompoundTag> migrated = new WeakHashMap<>();
+
+    FacetMigrations(FacetMigration[] steps) {
+        this.steps = steps;
+    }
+
+    int version() {
+        return steps.length;
+    }
+
+    /**
+     * @return true if any data was changed.
+     */
+    boolean apply(Facet<?> facet, ItemStack stack) {
+        var root = stack.getTag();
+        if (root == null || !apply(facet, stack, root)) return false;
+        if (root.isEmpty()) stack.setTag(null);
+        FacetStamps.mark(stack, facet);
+        return true;
+    }
+
+    /**
+     * @return true if any data was changed.
+     */
+    boolean apply(Facet<?> facet, FacetHolder holder) {
+        var root = holder.getFacetData();
+        if (root == null || !apply(facet, holder, root)) return false;
+        if (root.isEmpty()) holder.setFacetData(null);
+        holder.onFacetDataChanged();
+        return true;
+    }
+
+    private boolean apply(Facet<?> facet, Object owner, CompoundTag root) {
+        synchronized (migrated) {
+            if (migrated.get(owner) == root) return false;
+        }
+        boolean changed = apply(facet, root);
+        synchronized (migrated) {
+            migrated.put(owner, root);
+        }
+        return changed;
+    }
+
+    /**
+     * Applies every step to the provided item data, without consulting or updating the record of migrated stacks.
+     *
+     * @return true if any data was changed.
+     */
+    boolean apply(Facet<?> facet, CompoundTag root) {
+        boolean changed = false;
+        for (var step : steps) changed |= step.migrate(facet, root);
+        return changed;
+    }
+}
@@ -0,0 +1,156 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A precompiled accessor for the parent tag of a {@link Facet}.
+ * <p>
+ * Every level of the path is resolved with a single map probe, and no intermediate objects are allocated
+ * unless a missing parent has to be created.
+ */
+final class FacetPath {
+    private static final String[] NO_KEYS = new String[0];
+    static final FacetPath ROOT = new FacetPath(NO_KEYS);
+
+    private final String[] keys;
+
+    private FacetPath(String[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Compiles the given path. The array is shared with the caller and must not be modified afterwards.
+     */
+    static FacetPath of(String[] keys) {
+        return keys.length == 0 ? ROOT : new FacetPath(keys);
+    }
+
+    /**
+     * Adds the given path to the list unless a path to the same parent is already in it.
+     */
+    static void addDistinct(List<FacetPath> paths, FacetPath path) {
+        for (var existing : paths) {
+            if (existing == path || Arrays.equals(existing.keys, path.keys)) return;
+        }
+        paths.add(path);
+    }
+
+    int depth() {
+        return keys.length;
+    }
+
+    String key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Resolves the parent tag, starting from the root of the data.
+     *
+     * @return the parent tag, or null if any level of the path is missing or isn't a compound.
+     */
+    @Contract(value = "null -> null", pure = true)
+    @Nullable CompoundTag resolve(@Nullable CompoundTag root) {
+        return resolve(root, 0);
+    }
+
+    /**
+     * Resolves the parent tag, starting from an intermediate tag at the given depth of the path.
+     *
+     * @return the parent tag, or null if any remaining level of the path is missing or isn't a compound.
+     */
+    @Contract(value = "null, _ -> null", pure = true)
+    @Nullable CompoundTag resolve(@Nullable CompoundTag from, int start) {
+        var tag = from;
+        for (int i = start, len = keys.length; tag != null && i < len; i++) {
+            tag = tag.get(keys[i]) instanceof CompoundTag child ? child : null;
+        }
+        return tag;
+    }
+
+    /**
+     * Resolves the parent tag, starting from the root of the data and creating (or replacing) any level that isn't a compound.
+     *
+     * @return the parent tag.
+     */
+    CompoundTag resolveOrCreate(CompoundTag root) {
+        return resolveOrCreate(root, 0);
+    }
+
+    /**
+     * Resolves the parent tag, starting from an intermediate tag at the given depth of the path
+     * and creating (or replacing) any remaining level that isn't a compound.
+     *
+     * @return the parent tag.
+     */
+    CompoundTag resolveOrCreate(CompoundTag from, int start) {
+        return resolveOrCreate(from, start, keys.length);
+    }
+
+    private CompoundTag resolveOrCreate(CompoundTag from, int start, int end) {
+        var tag = from;
+        for (int i = start; i < end; i++) {
+            var key = keys[i];
+            if (tag.get(key) instanceof CompoundTag child) {
+                tag = child;
+            } else {
+                var child = new CompoundTag();
+                tag.put(key, child);
+                tag = child;
+            }
+        }
+        return tag;
+    }
+
+    /**
+     * Puts a parent tag that was pruned while it was still in use back in place, creating any missing level above it.
+     */
+    void restore(ItemStack stack, CompoundTag parent) {
+        if (keys.length == 0) {
+            if (stack.getTag() != parent) stack.setTag(parent);
+        } else {
+            restore(stack.getOrCreateTag(), parent);
+        }
+    }
+
+    void restore(FacetHolder holder, CompoundTag parent) {
+        if (keys.length == 0) {
+            if (holder.getFacetData() != parent) holder.setFacetData(parent);
+        } else {
+            restore(holder.getOrCreateFacetData(), parent);
+        }
+    }
+
+    private void restore(CompoundTag root, CompoundTag parent) {
+        int last = keys.length - 1;
+        var above = resolveOrCreate(root, 0, last);
+        if (above.get(keys[last]) != parent) above.put(keys[last], parent);
+    }
+
+    /**
+     * Removes empty compounds along the path, starting from the deepest level and stopping at the first non-empty one.
+     * If the root itself ends up empty, the stack's tag is cleared entirely.
+     */
+    void prune(ItemStack stack) {
+        var root = stack.getTag();
+        if (root != null && prune(root, 0)) stack.setTag(null);
+    }
+
+    /**
+     * Removes empty compounds along the path, starting from the deepest level and stopping at the given depth.
+     *
+     * @return true if the starting tag is empty afterwards.
+     */
+    boolean prune(CompoundTag from, int start) {
+        if (start < keys.length) {
+            var key = keys[start];
+            if (from.get(key) instanceof CompoundTag child && prune(child, start + 1)) from.remove(key);
+        }
+        return from.isEmpty();
+    }
+}
@@ -0,0 +1,401 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.saveddata.SavedData;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static net.minecraft.nbt.Tag.*;
+
+/**
+ * A content-addressed store for large facet payloads that many stacks share, which keeps each distinct payload only once per world.
+ * <p>
+ * {@linkplain DeduplicatedFacet Deduplicated facets} store a small reference in item data instead of the payload itself,
+ * and resolve it through the store that is attached to the running server. The store is saved along with the world as saved data.
+ * Payloads are identified by a SHA-256 hash of their canonical form, so equal payloads share an entry regardless of key order.
+ * <p>
+ * Stacks are copied and destroyed without the store noticing, so reference counts can't be kept accurately while the game runs.
+ * Instead, payloads that were written during the session are only kept once a stack that references them is saved
+ * (which {@link #markSaved} has to be told about); payloads that no saved stack referenced and that weren't used for
+ * a few saves of the store (such as the intermediate values of a stack that was changed repeatedly) are dropped.
+ * Payloads that were persisted are never dropped online, since unloaded chunks may still reference them, so the store only grows
+ * until {@link #compact} counts the references in the saved files of a world and drops payloads that are no longer referenced.
+ * Compaction must be run while the world isn't loaded (such as during a maintenance window).
+ * <p>
+ * This class doesn't attach itself to the server by itself, since the method of doing so differs depending on the mod loader.
+ * To make use of it, {@link #attach} must be called when the server starts, and {@link #detach} when it stops.
+ * The saved form of every stack must also be passed through {@link #markSaved}
+ * (for example, with a mixin that injects into {@link net.minecraft.world.item.ItemStack#save}).
+ * Without an attached store (such as on clients), deduplicated facets store their payloads inline instead.
+ */
+public final class FacetPayloadStore extends SavedData {
+    /**
+     * The name of the saved data file of the store.
+     */
+    public static final String NAME = "littlethings_facet_payloads";
+    private static final String REFERENCE = "LittleThingsPayload";
+    private static final String ENTRIES = "Entries";
+    private static final String HASH = "Hash";
+    private static final String PAYLOAD = "Payload";
+    private static final int UNUSED_SAVES = 2;
+    private static volatile @Nullable FacetPayloadStore attached;
+    private final Map<Hash, Entry> entries = new HashMap<>();
+    private volatile int unsaved;
+    private int saves;
+
+    @VisibleForTesting
+    FacetPayloadStore() {}
+
+    /**
+     * Loads the store of the provided server's world, creating it if it doesn't exist yet, and attaches it.
+     *
+     * @param server the server that is starting.
+     *
+     * @return the attached store.
+     */
+    public static FacetPayloadStore attach(MinecraftServer server) {
+        return attach(server.overworld().getDataStorage().computeIfAbsent(FacetPayloadStore::load, FacetPayloadStore::new, NAME));
+    }
+
+    @VisibleForTesting
+    static FacetPayloadStore attach(FacetPayloadStore store) {
+        attached = store;
+        return store;
+    }
+
+    /**
+     * Detaches the currently attached store, after which deduplicated facets can no longer resolve references.
+     */
+    public static void detach() {
+        attached = null;
+    }
+
+    /**
+     * @return the currently attached store, or null if no store is attached.
+     */
+    @Contract(pure = true)
+    public static @Nullable FacetPayloadStore getAttached() {
+        return attached;
+    }
+
+    /**
+     * Stores the payload in the attached store, if there is one.
+     *
+     * @return a reference to the payload, or the payload itself if no store is attached.
+     */
+    static Tag reference(Tag payload) {
+        var store = attached;
+        if (store == null) return payload;
+        var hash = store.put(payload);
+        var reference = new CompoundTag();
+        reference.put(REFERENCE, new LongArrayTag(hash.toArray()));
+        return reference;
+    }
+
+    /**
+     * @return the payload that the stored tag refers to, the stored tag itself if it's an inline payload,
+     * or null if the payload can't be resolved.
+     */
+    static @Nullable Tag resolve(Tag stored) {
+        var hash = referencedHash(stored);
+        if (hash == null) return stored;
+        var store = attached;
+        return store != null ? store.get(hash) : null;
+    }
+
+    static boolean isReference(Tag stored) {
+        return referencedHash(stored) != null;
+    }
+
+    private static @Nullable Hash referencedHash(Tag stored) {
+        if (!(stored instanceof CompoundTag compound) || compound.size() != 1) return null;
+        if (!(compound.get(REFERENCE) instanceof LongArrayTag array)) return null;
+        var longs = array.getAsLongArray();
+        return longs.length == 4 ? new Hash(longs[0], longs[1], longs[2], longs[3]) : null;
+    }
+
+    private synchronized Hash put(Tag payload) {
+        var hash = Hash.of(payload);
+        var entry = entries.get(hash);
+        if (entry == null) {
+            // Stored payloads are never modified or handed out for modification, so they can be shared freely
+            entries.put(hash, new Entry(payload.copy(), false, saves));
+            unsaved++;
+            setDirty();
+        } else {
+            entry.used = saves;
+        }
+        return hash;
+    }
+
+    private synchronized @Nullable Tag get(Hash hash) {
+        var entry = entries.get(hash);
+        if (entry == null) return null;
+        entry.used = saves;
+        return entry.payload;
+    }
+
+    /**
+     * Keeps the payloads that the saved form of a stack references (including those referenced by those payloads),
+     * since the stack can now be loaded again later.
+     *
+     * @param saved the saved form of a stack, or any other saved data that may reference payloads.
+     */
+    public static void markSaved(CompoundTag saved) {
+        var store = attached;
+        // Nothing needs to be walked as long as every payload of the store was already persisted
+        if (store != null && store.unsaved > 0) store.persist(saved);
+    }
+
+    private synchronized void persist(Tag saved) {
+        visitReferences(saved, this::persist);
+    }
+
+    private void persist(Hash hash) {
+        var entry = entries.get(hash);
+        if (entry == null || entry.persisted) return;
+        entry.persisted = true;
+        unsaved--;
+        visitReferences(entry.payload, this::persist);
+    }
+
+    /**
+     * @return the number of distinct payloads in this store.
+     */
+    @Contract(pure = true)
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return true if the store changed, or still holds payloads that no saved stack referenced yet,
+     * so that it keeps being saved until they are either persisted or dropped.
+     */
+    @Override
+    public boolean isDirty() {
+        return super.isDirty() || unsaved > 0;
+    }
+
+    /**
+     * Drops payloads that no saved stack referenced and that weren't used since the last few saves, then saves the rest.
+     * Payloads that no saved stack referenced yet are still saved, since stacks may be saved after the store in the same world save.
+     */
+    @Override
+    public synchronized CompoundTag save(CompoundTag tag) {
+        saves++;
+        entries.values().removeIf(entry -> {
+            boolean unused = !entry.persisted && saves - entry.used > UNUSED_SAVES;
+            if (unused) unsaved--;
+            return unused;
+        });
+        var list = new ListTag();
+        entries.forEach((hash, entry) -> {
+            var saved = new CompoundTag();
+            saved.put(HASH, new LongArrayTag(hash.toArray()));
+            saved.put(PAYLOAD, entry.payload);
+            list.add(saved);
+        });
+        tag.put(ENTRIES, list);
+        return tag;
+    }
+
+    @VisibleForTesting
+    static FacetPayloadStore load(CompoundTag tag) {
+        var store = new FacetPayloadStore();
+        var entries = tag.getList(ENTRIES, TAG_COMPOUND);
+        for (int i = 0; i < entries.size(); i++) {
+            var entry = entries.getCompound(i);
+            var hash = entry.getLongArray(HASH);
+            var payload = entry.get(PAYLOAD);
+            if (hash.length == 4 && payload != null) store.entries.put(new Hash(hash[0], hash[1], hash[2], hash[3]), new Entry(payload, true, 0));
+        }
+        return store;
+    }
+
+    /**
+     * Counts the references in every region, player data, and saved data file, as well as the level file of the provided world,
+     * then drops the payloads of the world's store that are no longer referenced. References inside compressed facets
+     * and inside the payloads that are kept are followed too.
+     * Nothing is dropped if any file can't be read, since references in that file couldn't be counted.
+     *
+     * @param world the world directory, which contains the {@code level.dat} file. The world must not be loaded.
+     *
+     * @return the result of the compaction.
+     *
+     * @throws IOException if the store couldn't be read or written, or any file of the world couldn't be read.
+     */
+    public static Compaction compact(Path world) throws IOException {
+        var file = world.resolve("data").resolve(NAME + ".dat");
+        if (!Files.exists(file)) return new Compaction(0, 0, 0);
+        CompoundTag saved;
+        try (var in = Files.newInputStream(file)) {
+            saved = NbtIo.readCompressed(in);
+        }
+        var store = load(saved.getCompound("data"));
+
+        var counts = new ConcurrentHashMap<Hash, Long>();
+        var files = Collections.synchronizedList(new ArrayList<Path>());
+        // Saved data (such as storage networks) and the level itself (which holds the singleplayer player) can reference payloads too
+        RegionFiles.collect(world, files::add, files::add);
+        try {
+            files.parallelStream().forEach(path -> {
+                try {
+                    countReferences(path, counts);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw new IOException("Couldn't count every payload reference, so nothing was compacted", e.getCause());
+        }
+        // Payloads can reference other payloads (such as a captured mob holding deduplicated items), which stay alive with them
+        var pending = new ArrayDeque<>(counts.keySet());
+        while (!pending.isEmpty()) {
+            var entry = store.entries.get(pending.poll());
+            if (entry != null) visitReferences(entry.payload, hash -> {
+                if (counts.merge(hash, 1L, Long::sum) == 1L) pending.add(hash);
+            });
+        }
+
+        int entries = store.entries.size();
+        store.entries.keySet().retainAll(counts.keySet());
+        if (store.entries.size() < entries) {
+            saved.put("data", store.save(new CompoundTag()));
+            var temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var out = Files.newOutputStream(temp)) {
+                NbtIo.writeCompressed(saved, out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        long references = counts.values().stream().mapToLong(Long::longValue).sum();
+        return new Compaction(entries, store.entries.size(), references);
+    }
+
+    private static void countReferences(Path file, Map<Hash, Long> counts) throws IOException {
+        Consumer<Hash> counter = hash -> counts.merge(hash, 1L, Long::sum);
+        var name = file.getFileName().toString();
+        if (name.endsWith(".dat")) {
+            visitReferences(RegionFiles.readCompressed(RegionFiles.map(file)), counter);
+            return;
+        }
+        var region = RegionFiles.map(file);
+        if (!RegionFiles.hasHeader(region)) return;
+        for (int index = 0; index < RegionFiles.CHUNKS_PER_REGION; index++) {
+            if (RegionFiles.chunkOffset(region, index) != 0) visitReferences(RegionFiles.readChunk(file, region, index), counter);
+        }
+    }
+
+    /**
+     * Visits every reference in the tag, including those inside compressed facet payloads, which are inflated to look through them.
+     */
+    private static void visitReferences(Tag tag, Consumer<Hash> visitor) {
+        var hash = referencedHash(tag);
+        if (hash != null) {
+            visitor.accept(hash);
+        } else if (tag instanceof CompoundTag compound) {
+            for (var key : compound.getAllKeys()) visitReferences(compound.get(key), visitor);
+        } else if (tag instanceof ListTag list) {
+            byte type = list.getElementType();
+            if (type == TAG_COMPOUND || type == TAG_LIST || type == TAG_BYTE_ARRAY) for (var element : list) visitReferences(element, visitor);
+        } else if (tag instanceof ByteArrayTag bytes) {
+            var payload = CompressedFacet.inflate(bytes.getAsByteArray());
+            if (payload != null) visitReferences(payload, visitor);
+        }
+    }
+
+    /**
+     * The outcome of a compaction.
+     *
+     * @param entries the number of payloads in the store before compacting.
+     * @param retained the number of payloads that were still referenced and kept.
+     * @param references the total number of references that were found, including those inside kept payloads.
+     */
+    public record Compaction(int entries, int retained, long references) {}
+
+    private static final class Entry {
+        private final Tag payload;
+        private boolean persisted;
+        private int used;
+
+        private Entry(Tag payload, boolean persisted, int used) {
+            this.payload = payload;
+            this.persisted = persisted;
+            this.used = used;
+        }
+    }
+
+    private record Hash(long a, long b, long c, long d) {
+        private static Hash of(Tag payload) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AssertionError("Every Java platform supports SHA-256", e);
+            }
+            try (var out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                writeCanonical(payload, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // The null stream doesn't actually throw
+            }
+            var bytes = ByteBuffer.wrap(digest.digest());
+            return new Hash(bytes.getLong(), bytes.getLong(), bytes.getLong(), bytes.getLong());
+        }
+
+        /**
+         * Writes the tag like it would be saved, except that compound keys are sorted, since their saved order is arbitrary.
+         */
+        private static void writeCanonical(Tag tag, DataOutputStream out) throws IOException {
+            out.writeByte(tag.getId());
+            if (tag instanceof CompoundTag compound) {
+                List<String> keys = new ArrayList<>(compound.getAllKeys());
+                Collections.sort(keys);
+                out.writeInt(keys.size());
+                for (var key : keys) {
+                    out.writeUTF(key);
+                    writeCanonical(compound.get(key), out);
+                }
+            } else if (tag instanceof ListTag list) {
+                out.writeInt(list.size());
+                for (var element : list) writeCanonical(element, out);
+            } else {
+                tag.write(out);
+            }
+        }
+
+        private long[] toArray() {
+            return new long[]{a, b, c, d};
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.advancements.critereon.NbtPredicate;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An {@link NbtPredicate} compiled from a {@link Facet}, which walks straight down the facet's path and only compares the leaf.
+ * <p>
+ * The expected tag is kept as-is, so the predicate serializes exactly like a vanilla one, and matching has the same semantics
+ * as {@link NbtUtils#compareNbt} with partial list matching. Predicates whose expected tag contains anything besides the facet's path
+ * and leaf fall back to the vanilla comparison.
+ */
+final class FacetPredicate extends NbtPredicate {
+    private final FacetPath parentPath;
+    private final String name;
+    private final @Nullable Tag expected;
+    private final boolean compiled;
+
+    FacetPredicate(CompoundTag root, FacetPath parentPath, String name) {
+        super(root);
+        this.parentPath = parentPath;
+        this.name = name;
+        var parent = parentPath.resolve(root);
+        this.expected = parent != null ? parent.get(name) : null;
+        this.compiled = isPathOnly(root, parent);
+    }
+
+    /**
+     * Checks that every compound along the path only contains the next level of the path, and that the parent only contains the leaf.
+     */
+    private boolean isPathOnly(CompoundTag root, @Nullable CompoundTag parent) {
+        if (parent == null) return false;
+        var tag = root;
+        for (int i = 0, depth = parentPath.depth(); i < depth; i++) {
+            if (tag.size() != 1) return false;
+            tag = tag.getCompound(parentPath.key(i));
+        }
+        return parent.size() == (expected != null ? 1 : 0);
+    }
+
+    @Override
+    @Contract(pure = true)
+    public boolean matches(@Nullable Tag tag) {
+        if (!compiled) return super.matches(tag);
+        // A missing tag never matches, just like a vanilla predicate that isn't ANY
+        if (!(tag instanceof CompoundTag root)) return false;
+        var parent = parentPath.resolve(root);
+        if (parent == null) return false;
+        return expected == null || NbtUtils.compareNbt(expected, parent.get(name), true);
+    }
+}
@@ -0,0 +1,52 @@
+package dev.denimred.littlethings.facets;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a set of facets that share a path, from which the facets annotation processor generates a class of typed accessors.
+ * <p>
+ * The annotated interface lists one method per facet, whose return type is the facet's type and whose name is the facet's name
+ * (unless overridden with {@link Key}). Supported types are the primitive types and {@link String}. For example:
+ * <pre>{@code
+ * @FacetSchema({"mymod", "jug"})
+ * interface JugSchema {
+ *     int charges();
+ *     @FacetSchema.Key("last_filled") long lastFilled();
+ * }
+ * }</pre>
+ * The generated {@code JugSchemaFacets} class holds a facet constant for every method (such as {@code CHARGES}), for use with
+ * the rest of the facets API, along with static {@code get}, {@code set}, {@code has}, and {@code remove} accessors for each facet.
+ * The getters and setters walk the path and read or write the tag directly instead of going through the facet's reader and writer,
+ * so every call site stays monomorphic and can be fully inlined.
+ * <p>
+ * Generated accessors work on the same data as the facet constants, but skip migrations and read metrics,
+ * so facets that need either should be declared as regular facets instead.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface FacetSchema {
+    /**
+     * @return the path of the tag that holds the facets, which may be empty to hold them in the root of the item data.
+     */
+    String[] value();
+
+    /**
+     * @return the simple name of the generated class, or an empty string to append {@code Facets} to the name of the schema.
+     */
+    String className() default "";
+
+    /**
+     * Overrides the name of the facet that a schema method declares, which is the name of the method by default.
+     */
+    @Retention(RetentionPolicy.SOURCE)
+    @Target(ElementType.METHOD)
+    @interface Key {
+        /**
+         * @return the name of the facet.
+         */
+        String value();
+    }
+}
@@ -0,0 +1,169 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable capture of the data of chosen facets from a single stack, which can be read from any thread.
+ * <p>
+ * Capturing only copies the tags of the chosen facets, never any unrelated item data, and primitive tags are shared rather than copied.
+ * Snapshots are meant to be captured on the thread that owns the stacks, then handed off to worker threads.
+ * Values are decoded from the captured tags on every read, so decoding happens on the reading thread.
+ * <p>
+ * Keep in mind that write-through values (such as list facet views) must be treated as read-only, since they are backed by the captured tags.
+ */
+public final class FacetSnapshot {
+    private final Facet<?>[] facets;
+    private final @Nullable Tag[] tags;
+    private final long stamp;
+
+    private FacetSnapshot(Facet<?>[] facets, @Nullable Tag[] tags, long stamp) {
+        this.facets = facets;
+        this.tags = tags;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Captures the data of the given facets from the provided stack.
+     *
+     * @param stack the item stack to capture data from.
+     * @param first the first facet to capture, exists to ensure at least one facet is present in the snapshot.
+     * @param rest the remaining facets to capture.
+     *
+     * @return a new snapshot of the stack's facet data.
+     */
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static FacetSnapshot capture(ItemStack stack, Facet<?> first, Facet<?>... rest) {
+        return capture(stack, toArray(first, rest));
+    }
+
+    /**
+     * Captures the data of the given facets from every provided stack. The snapshots share a single copy of the facet list.
+     *
+     * @param stacks the item stacks to capture data from.
+     * @param first the first facet to capture, exists to ensure at least one facet is present in the snapshots.
+     * @param rest the remaining facets to capture.
+     *
+     * @return new snapshots of each stack's facet data, in iteration order.
+     */
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static @Unmodifiable List<FacetSnapshot> captureAll(Iterable<ItemStack> stacks, Facet<?> first, Facet<?>... rest) {
+        var facets = toArray(first, rest);
+        var snapshots = new ArrayList<FacetSnapshot>();
+        for (var stack : stacks) snapshots.add(capture(stack, facets));
+        return List.copyOf(snapshots);
+    }
+
+    private static Facet<?>[] toArray(Facet<?> first, Facet<?>[] rest) {
+        var facets = new Facet<?>[rest.length + 1];
+        facets[0] = first;
+        System.arraycopy(rest, 0, facets, 1, rest.length);
+        return facets;
+    }
+
+    private static FacetSnapshot capture(ItemStack stack, Facet<?>[] facets) {
+        var tags = new Tag[facets.length];
+        for (int i = 0; i < facets.length; i++) {
+            var facet = facets[i];
+            var parent = facet.getParentTag(stack);
+            if (parent != null && facet.isIn(parent)) {
+                var tag = parent.get(facet.name);
+                // Numeric and string tags are immutable and return themselves here
+                if (tag != null) tags[i] = tag.copy();
+            }
+        }
+        return new FacetSnapshot(facets, tags, FacetStamps.getStamp(stack));
+    }
+
+    private int indexOf(Facet<?> facet) {
+        for (int i = 0; i < facets.length; i++) {
+            if (facets[i] == facet) return i;
+        }
+        throw new IllegalArgumentException("Facet " + facet.name + " is not part of this snapshot");
+    }
+
+    /**
+     * @return the {@linkplain FacetStamps#getStamp stamp} that the stack had when this snapshot was captured.
+     */
+    @Contract(pure = true)
+    public long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Checks to see if the stack held data for the provided facet when this snapshot was captured.
+     *
+     * @param facet the captured facet to check.
+     *
+     * @return true if data for the facet was captured.
+     *
+     * @throws IllegalArgumentException if the facet wasn't captured by this snapshot.
+     */
+    @Contract(pure = true)
+    public boolean isIn(Facet<?> facet) {
+        return tags[indexOf(facet)] != null;
+    }
+
+    /**
+     * Decodes captured data.
+     *
+     * @param facet the captured facet to read.
+     * @param <T> the type that the facet handles.
+     *
+     * @return the captured facet data, or null if no applicable data was present.
+     *
+     * @throws IllegalArgumentException if the facet wasn't captured by this snapshot.
+     */
+    @Contract(pure = true)
+    public <T> @Nullable T get(Facet<T> facet) {
+        var tag = tags[indexOf(facet)];
+        if (tag == null) return null;
+        // Facets read relative to their parent, so the captured tag gets a throwaway parent of its own
+        var parent = new CompoundTag();
+        parent.put(facet.name, tag);
+        return facet.read(parent);
+    }
+
+    /**
+     * Decodes captured data.
+     *
+     * @param facet the captured facet to read.
+     * @param fallback the value to return if no data was present.
+     * @param <T> the type that the facet handles.
+     *
+     * @return the captured facet data, or the provided fallback if no applicable data was present.
+     *
+     * @throws IllegalArgumentException if the facet wasn't captured by this snapshot.
+     */
+    @Contract(pure = true)
+    public <T> T getOr(Facet<T> facet, T fallback) {
+        @Nullable T result = get(facet);
+        return result != null ? result : fallback;
+    }
+
+    /**
+     * Decodes captured data.
+     *
+     * @param facet the captured facet to read.
+     * @param <T> the type that the facet handles.
+     *
+     * @return the captured facet data.
+     *
+     * @throws NoSuchElementException if no applicable data was present.
+     * @throws IllegalArgumentException if the facet wasn't captured by this snapshot.
+     */
+    @Contract(pure = true)
+    public <T> T getOrThrow(Facet<T> facet) throws NoSuchElementException {
+        @Nullable T result = get(facet);
+        if (result == null) throw new NoSuchElementException();
+        return result;
+    }
+}
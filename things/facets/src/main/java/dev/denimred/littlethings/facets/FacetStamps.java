@@ -0,0 +1,239 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tracks modifications that facets make to item stacks.
+ * <p>
+ * Every write or removal made through a {@link Facet} (or a {@link FacetGroup} view) gives the stack a new modification stamp
+ * and marks the facet as dirty on that stack. Stamps increase monotonically across all stacks, so a sync layer can remember the
+ * last stamp it sent for a slot and skip the stack entirely while the stamp is unchanged, then send only the dirty facets.
+ * <p>
+ * Only changes made through facets are tracked; stacks that are modified directly or copied start out with no stamp.
+ * Stacks are only weakly referenced, so tracking never keeps them alive.
+ * <p>
+ * Stamping is off until {@link #enable} is called, so that facet writes stay allocation-free for mods that don't use it.
+ * While it's off, writes only cost a single volatile read, unless a {@link FacetIndex} or {@link FacetEquivalence} needs to hear about them.
+ */
+public final class FacetStamps {
+    /** The stamp of stacks that were never modified by a facet. */
+    public static final long UNSTAMPED = 0L;
+
+    private static final int STAMPING = 1;
+    private static final int LISTENING = 2;
+    private static final AtomicLong COUNTER = new AtomicLong(UNSTAMPED);
+    private static final int STRIPES = 16;
+    @SuppressWarnings("unchecked")
+    private static final Map<ItemStack, State>[] STATES = new Map[STRIPES];
+
+    private static volatile int mode;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) STATES[i] = new WeakHashMap<>();
+    }
+
+    private FacetStamps() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Stacks are spread over several maps by their identity, each with its own lock, so that threads working on different stacks
+     * rarely contend with each other.
+     */
+    private static Map<ItemStack, State> states(ItemStack stack) {
+        int hash = System.identityHashCode(stack);
+        return STATES[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Turns on modification stamps and dirty facets for every stack. Should be called once during initialization, by mods that sync
+     * or otherwise rely on stamps; stacks that were modified before stamping was enabled start out with no stamp.
+     */
+    public static void enable() {
+        enable(STAMPING);
+    }
+
+    /**
+     * @return true if modification stamps and dirty facets are being tracked.
+     *
+     * @see #enable
+     */
+    @Contract(pure = true)
+    public static boolean isEnabled() {
+        return (mode & STAMPING) != 0;
+    }
+
+    private static void enable(int flag) {
+        if ((mode & flag) != 0) return;
+        synchronized (FacetStamps.class) {
+            mode |= flag;
+        }
+    }
+
+    static void mark(ItemStack stack, Facet<?> facet) {
+        int mode = FacetStamps.mode;
+        if (mode == 0) return;
+        boolean stamping = (mode & STAMPING) != 0;
+        long stamp = stamping ? COUNTER.incrementAndGet() : UNSTAMPED;
+        var states = states(stack);
+        synchronized (states) {
+            // Without stamping, only stacks that are already tracked have anything to update
+            var state = stamping ? states.computeIfAbsent(stack, s -> new State()) : states.get(stack);
+            if (state == null) return;
+            state.version++;
+            state.hashes = null;
+            if (stamping) {
+                state.stamp = stamp;
+                if (state.dirty == null) state.dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+                state.dirty.add(facet);
+            }
+            if (state.indexes != null) {
+                for (var ref : state.indexes) {
+                    var index = ref.get();
+                    if (index != null) index.stackMarked(stack);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the index be notified whenever the stack is modified through a facet, until it's {@linkplain #untrack untracked}.
+     * Indexes are only weakly referenced, since they hold their stacks.
+     */
+    static void track(ItemStack stack, FacetIndex index) {
+        enable(LISTENING);
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.computeIfAbsent(stack, s -> new State());
+            if (state.indexes == null) state.indexes = new ArrayList<>(1);
+            state.indexes.removeIf(ref -> ref.get() == null || ref.get() == index);
+            state.indexes.add(new WeakReference<>(index));
+        }
+    }
+
+    static void untrack(ItemStack stack, FacetIndex index) {
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.get(stack);
+            if (state == null || state.indexes == null) return;
+            state.indexes.removeIf(ref -> ref.get() == null || ref.get() == index);
+            if (state.indexes.isEmpty()) state.indexes = null;
+        }
+    }
+
+    /**
+     * Retrieves the modification stamp of the provided stack.
+     *
+     * @param stack the item stack to check.
+     *
+     * @return the stamp of the last facet modification made to the stack, or {@link #UNSTAMPED} if there were none
+     * or stamping isn't {@linkplain #enable enabled}.
+     */
+    @Contract(pure = true)
+    public static long getStamp(ItemStack stack) {
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.get(stack);
+            return state != null ? state.stamp : UNSTAMPED;
+        }
+    }
+
+    /**
+     * Checks to see if any facets were modified on the provided stack since its dirty facets were last drained.
+     *
+     * @param stack the item stack to check.
+     *
+     * @return true if there are any dirty facets on the stack.
+     */
+    @Contract(pure = true)
+    public static boolean isDirty(ItemStack stack) {
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.get(stack);
+            return state != null && state.dirty != null;
+        }
+    }
+
+    /**
+     * Retrieves the facets that were modified on the provided stack since they were last drained, without clearing them.
+     *
+     * @param stack the item stack to check.
+     *
+     * @return an immutable copy of the dirty facets on the stack.
+     */
+    @Contract(pure = true)
+    public static @Unmodifiable Set<Facet<?>> getDirtyFacets(ItemStack stack) {
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.get(stack);
+            return state != null && state.dirty != null ? Set.copyOf(state.dirty) : Set.of();
+        }
+    }
+
+    /**
+     * Retrieves and clears the facets that were modified on the provided stack since they were last drained.
+     * The stack's stamp is left untouched.
+     *
+     * @param stack the item stack to drain.
+     *
+     * @return the dirty facets on the stack, which is owned by the caller.
+     */
+    public static Set<Facet<?>> drainDirtyFacets(ItemStack stack) {
+        var states = states(stack);
+        synchronized (states) {
+            var state = states.get(stack);
+            if (state == null || state.dirty == null) return Set.of();
+            var dirty = state.dirty;
+            state.dirty = null;
+            return dirty;
+        }
+    }
+
+    /**
+     * Retrieves a hash of the stack that was computed by the given owner, computing and caching it if needed.
+     * Cached hashes are discarded whenever a facet modifies the stack, or when the stack's whole tag is replaced.
+     */
+    static int cachedHash(ItemStack stack, Object owner, ToIntFunction<ItemStack> hasher) {
+        enable(LISTENING);
+        var root = stack.getTag();
+        int version;
+        var states = states(stack);
+        synchronized (states) {
+            // The state is created up front, so that modifications made while hashing are noticed even without stamping
+            var state = states.computeIfAbsent(stack, s -> new State());
+            var cached = state.hashes != null ? state.hashes.get(owner) : null;
+            if (cached != null && cached.root == root) return cached.hash;
+            version = state.version;
+        }
+
+        int hash = hasher.applyAsInt(stack);
+        synchronized (states) {
+            var state = states.computeIfAbsent(stack, s -> new State());
+            // Don't cache hashes of data that was modified while hashing
+            if (state.version == version) {
+                if (state.hashes == null) state.hashes = new IdentityHashMap<>(2);
+                state.hashes.put(owner, new CachedHash(root, hash));
+            }
+        }
+        return hash;
+    }
+
+    private static final class State {
+        private long stamp = UNSTAMPED;
+        private int version;
+        private @Nullable Set<Facet<?>> dirty;
+        private @Nullable Map<Object, CachedHash> hashes;
+        private @Nullable List<WeakReference<FacetIndex>> indexes;
+    }
+
+    private record CachedHash(@Nullable CompoundTag root, int hash) {}
+}
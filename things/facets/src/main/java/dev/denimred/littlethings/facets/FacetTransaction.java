@@ -0,0 +1,253 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stages changes to several facets of a single stack, then applies them all at once or not at all.
+ * <p>
+ * Nothing is written to the stack until {@link #commit} is called, at which point every staged change is applied in one pass and
+ * emptied parents are pruned once per path. If any write fails with an exception, every facet touched by the transaction is restored.
+ * Closing a transaction that wasn't committed rolls it back.
+ * <pre>{@code
+ * try (var tx = FacetTransaction.begin(stack)) {
+ *     tx.set(OWNER, owner);
+ *     tx.modify(CHARGES, charges -> charges - 1);
+ *     tx.remove(COOLDOWN);
+ *     tx.commit();
+ * }
+ * }</pre>
+ * Values returned by {@link #get} reflect the staged changes. Keep in mind that write-through views (such as list facets) modify
+ * the stack as soon as they are changed; {@link #mutate} keeps a copy of the original data so that those changes can still be rolled back.
+ */
+public final class FacetTransaction implements AutoCloseable {
+    private final ItemStack stack;
+    private final Map<Facet<?>, Change<?>> changes = new IdentityHashMap<>();
+    private final List<Change<?>> order = new ArrayList<>();
+    private boolean finished;
+
+    private FacetTransaction(ItemStack stack) {
+        this.stack = stack;
+    }
+
+    /**
+     * Begins a new transaction on the provided stack.
+     *
+     * @param stack the item stack that the transaction will modify.
+     *
+     * @return a new transaction with no staged changes.
+     */
+    @Contract(value = "_ -> new", pure = true)
+    public static FacetTransaction begin(ItemStack stack) {
+        return new FacetTransaction(stack);
+    }
+
+    private void checkOpen() {
+        if (finished) throw new IllegalStateException("Transaction was already committed or rolled back");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Change<T> stage(Facet<T> facet) {
+        checkOpen();
+        var change = (Change<T>) changes.get(facet);
+        if (change == null) {
+            var parent = facet.getParentTag(stack);
+            change = new Change<>(facet, parent != null ? parent.get(facet.name) : null);
+            changes.put(facet, change);
+            order.add(change);
+        }
+        return change;
+    }
+
+    /**
+     * Retrieves data from the stack, taking any staged changes into account.
+     *
+     * @param facet the facet to read.
+     * @param <T> the type that the facet handles.
+     *
+     * @return the staged value if there is one, otherwise the facet data stored in the stack, or null if no applicable data was present.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T get(Facet<T> facet) {
+        checkOpen();
+        var change = (Change<T>) changes.get(facet);
+        return change != null && change.staged ? change.value : facet.get(stack);
+    }
+
+    /**
+     * Stages a write to the stack.
+     *
+     * @param facet the facet to write.
+     * @param value the value to be written on commit.
+     * @param <T> the type that the facet handles.
+     *
+     * @return this transaction.
+     */
+    @Contract("_, _ -> this")
+    public <T> FacetTransaction set(Facet<T> facet, T value) {
+        var change = stage(facet);
+        change.staged = true;
+        change.value = value;
+        return this;
+    }
+
+    /**
+     * Stages a removal from the stack.
+     *
+     * @param facet the facet to remove.
+     *
+     * @return this transaction.
+     */
+    @Contract("_ -> this")
+    public FacetTransaction remove(Facet<?> facet) {
+        var change = stage(facet);
+        change.staged = true;
+        change.value = null;
+        return this;
+    }
+
+    /**
+     * Stages a modification of the current (possibly staged) value, if present.
+     *
+     * @param facet the facet to modify.
+     * @param modifier the modifier function that will be applied to the current value.
+     * @param <T> the type that the facet handles.
+     *
+     * @return true if the modifier was applied, false if no data was present.
+     *
+     * @see Facet#modify
+     */
+    public <T> boolean modify(Facet<T> facet, UnaryOperator<T> modifier) {
+        @Nullable T value = get(facet);
+        if (value == null) return false;
+        set(facet, modifier.apply(value));
+        return true;
+    }
+
+    /**
+     * Stages a mutation of the current (possibly staged) value, if present.
+     * The original data is copied first, so that changes made through write-through views can be rolled back.
+     *
+     * @param facet the facet to mutate.
+     * @param mutator the mutator function that will be applied to the current value.
+     * @param <T> the type that the facet handles.
+     *
+     * @return true if the mutator was applied, false if no data was present.
+     *
+     * @see Facet#mutate
+     */
+    public <T> boolean mutate(Facet<T> facet, Consumer<T> mutator) {
+        @Nullable T value = get(facet);
+        if (value == null) return false;
+        stage(facet).copyOriginal();
+        mutator.accept(value);
+        set(facet, value);
+        return true;
+    }
+
+    /**
+     * Applies every staged change to the stack in a single pass.
+     * If a write fails with an exception, the stack is restored to the state it was in when the transaction began, and the exception is rethrown.
+     *
+     * @throws IllegalStateException if the transaction was already committed or rolled back.
+     */
+    public void commit() {
+        checkOpen();
+        finished = true;
+        if (order.isEmpty()) return;
+
+        var root = stack.getTag();
+        var prune = new ArrayList<FacetPath>();
+        try {
+            for (var change : order) {
+                if (!change.staged) continue;
+                if (change.value == null) {
+                    var parent = change.facet.parentPath.resolve(root);
+                    if (parent != null) change.facet.removeFrom(parent);
+                    FacetPath.addDistinct(prune, change.facet.parentPath);
+                } else {
+                    if (root == null) root = stack.getOrCreateTag();
+                    if (!change.write(change.facet.parentPath.resolveOrCreate(root))) FacetPath.addDistinct(prune, change.facet.parentPath);
+                }
+            }
+        } catch (RuntimeException e) {
+            restore(order);
+            throw e;
+        }
+        for (var path : prune) path.prune(stack);
+        for (var change : order) {
+            if (change.staged) FacetStamps.mark(stack, change.facet);
+        }
+    }
+
+    /**
+     * Discards every staged change. Data that was changed in-place through {@link #mutate} is restored.
+     *
+     * @throws IllegalStateException if the transaction was already committed or rolled back.
+     */
+    public void rollback() {
+        checkOpen();
+        finished = true;
+        restore(order.stream().filter(change -> change.copied).toList());
+    }
+
+    /**
+     * Puts back the original data of every given change, in reverse order so that facets sharing a tag end up with the oldest data.
+     */
+    private void restore(List<Change<?>> changes) {
+        if (changes.isEmpty()) return;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            var change = changes.get(i);
+            var facet = change.facet;
+            if (change.original != null) {
+                facet.parentPath.resolveOrCreate(stack.getOrCreateTag()).put(facet.name, change.original);
+            } else {
+                var parent = facet.getParentTag(stack);
+                if (parent != null) parent.remove(facet.name);
+            }
+        }
+        for (var change : changes) change.facet.parentPath.prune(stack);
+    }
+
+    /**
+     * Rolls back this transaction, unless it was already committed or rolled back.
+     */
+    @Override
+    public void close() {
+        if (!finished) rollback();
+    }
+
+    private static final class Change<T> {
+        private final Facet<T> facet;
+        private @Nullable Tag original;
+        private boolean copied;
+        private boolean staged;
+        private @Nullable T value;
+
+        private Change(Facet<T> facet, @Nullable Tag original) {
+            this.facet = facet;
+            this.original = original;
+        }
+
+        private void copyOriginal() {
+            if (copied) return;
+            copied = true;
+            if (original != null) original = original.copy();
+        }
+
+        private boolean write(CompoundTag parent) {
+            assert value != null; // Sanity check; removals are handled separately
+            return facet.write(parent, value);
+        }
+    }
+}
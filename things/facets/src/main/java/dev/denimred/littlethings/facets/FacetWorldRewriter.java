@@ -0,0 +1,445 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static dev.denimred.littlethings.facets.Facet.LOGGER;
+import static dev.denimred.littlethings.facets.RegionFiles.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Applies facet transformations to every item stack in the saved files of a world, without starting a server.
+ * Transformations are applied to each stack in declaration order, and are meant for data layouts that are being retired
+ * for good, where lazily {@linkplain Facet#withMigrations migrating} stacks as they are accessed isn't enough.
+ * <p>
+ * Region files are processed in parallel on a dedicated fork-join pool, with the chunks of each region being processed in parallel as well.
+ * Player data, saved data, and the level file are processed too. Only files that actually changed are written, and within them only changed chunks are re-encoded;
+ * the stored bytes of every other chunk are copied as they are. Files are written next to the originals, then moved over them.
+ * Regions that contain unreadable chunks are left untouched, along with the external files of their oversized chunks.
+ * <p>
+ * When a checkpoint file is set, every fully processed file is recorded in it, and recorded files are skipped by later runs.
+ * This lets an interrupted rewrite of a large world continue where it left off. The checkpoint is deleted once a rewrite
+ * completes without failures, and must be deleted manually whenever the transformations change.
+ * <pre>{@code
+ * var result = FacetWorldRewriter.create()
+ *         .apply(CHARGES, FacetMigration.movedFrom("mymod", "oldCharges"))
+ *         .migrate(OWNER)
+ *         .drop(LEGACY_COLOR)
+ *         .withCheckpoint(Path.of("rewrite.checkpoint"))
+ *         .rewrite(Path.of("saves", "world"));
+ * }</pre>
+ * The world must not be loaded by a server while it is being rewritten.
+ */
+public final class FacetWorldRewriter {
+    private static final int CHUNKS_PER_TASK = 32;
+    private final List<Step> steps = new ArrayList<>();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private @Nullable Path checkpoint;
+
+    private FacetWorldRewriter() {}
+
+    /**
+     * @return a new world rewriter without any transformations.
+     */
+    @Contract(value = "-> new", pure = true)
+    public static FacetWorldRewriter create() {
+        return new FacetWorldRewriter();
+    }
+
+    /**
+     * Adds a transformation that applies a migration step to the facet's data, such as
+     * {@link FacetMigration#movedFrom} for renamed paths or {@link FacetMigration#converted} for changed types.
+     *
+     * @param facet the facet that describes the current layout.
+     * @param migration the migration step to apply.
+     *
+     * @return this rewriter.
+     */
+    @Contract("_, _ -> this")
+    public FacetWorldRewriter apply(Facet<?> facet, FacetMigration migration) {
+        steps.add(new Step(facet, migration));
+        return this;
+    }
+
+    /**
+     * Adds a transformation that applies every migration step the facet {@linkplain Facet#withMigrations declares}.
+     *
+     * @param facet the facet to migrate.
+     *
+     * @return this rewriter.
+     */
+    @Contract("_ -> this")
+    public FacetWorldRewriter migrate(Facet<?> facet) {
+        steps.add(new Step(facet, (f, root) -> f.migrate(root)));
+        return this;
+    }
+
+    /**
+     * Adds a transformation that removes the facet's data, along with any compounds along its path that are left empty.
+     *
+     * @param facet the facet to remove.
+     *
+     * @return this rewriter.
+     */
+    @Contract("_ -> this")
+    public FacetWorldRewriter drop(Facet<?> facet) {
+        steps.add(new Step(facet, (f, root) -> {
+            var parent = f.parentPath.resolve(root);
+            if (parent == null || !f.removeFrom(parent)) return false;
+            f.parentPath.prune(root, 0);
+            return true;
+        }));
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used for rewriting. Defaults to the number of available processors.
+     *
+     * @param parallelism the number of threads, which must be at least 1.
+     *
+     * @return this rewriter.
+     *
+     * @throws IllegalArgumentException if the parallelism is less than 1.
+     */
+    @Contract("_ -> this")
+    public FacetWorldRewriter withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the file that records which files were fully processed, so an interrupted rewrite can be continued.
+     *
+     * @param checkpoint the checkpoint file, which is created if it doesn't exist.
+     *
+     * @return this rewriter.
+     */
+    @Contract("_ -> this")
+    public FacetWorldRewriter withCheckpoint(Path checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Rewrites every region, player data, and saved data file, as well as the level file of the provided world,
+     * skipping files recorded in the checkpoint.
+     * Files and chunks that can't be processed are logged and counted as failures instead of aborting the rewrite.
+     *
+     * @param world the world directory, which contains the {@code level.dat} file.
+     *
+     * @return the result of the rewrite.
+     *
+     * @throws IllegalStateException if no transformations were added.
+     * @throws IOException if the world directory couldn't be listed or the checkpoint couldn't be read.
+     */
+    public Result rewrite(Path world) throws IOException {
+        if (steps.isEmpty()) throw new IllegalStateException("No transformations were added");
+        var done = readCheckpoint();
+        var tasks = new ArrayList<RecursiveAction>();
+        var total = new Counts();
+        int[] skipped = {0};
+        RegionFiles.collect(world, file -> {
+            if (done.contains(entry(world, file))) skipped[0]++;
+            else tasks.add(new RegionTask(world, file, total));
+        }, file -> {
+            if (done.contains(entry(world, file))) skipped[0]++;
+            else tasks.add(new PlayerTask(world, file, total));
+        });
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+        }
+        synchronized (total) {
+            if (checkpoint != null && total.failures == 0) Files.deleteIfExists(checkpoint);
+            return new Result(tasks.size(), skipped[0], total.files, total.chunks, total.rewrittenChunks, total.stacks, total.failures);
+        }
+    }
+
+    private Set<String> readCheckpoint() throws IOException {
+        if (checkpoint == null || !Files.exists(checkpoint)) return Set.of();
+        return new HashSet<>(Files.readAllLines(checkpoint, StandardCharsets.UTF_8));
+    }
+
+    private synchronized void markDone(Path world, Path file) {
+        if (checkpoint == null) return;
+        try {
+            Files.writeString(checkpoint, entry(world, file) + "\n", StandardCharsets.UTF_8, CREATE, WRITE, APPEND);
+        } catch (IOException e) {
+            // Not fatal, the file will just be processed again by the next run
+            LOGGER.warn("Failed to record {} in checkpoint {}", file, checkpoint, e);
+        }
+    }
+
+    private static String entry(Path world, Path file) {
+        return world.relativize(file).toString().replace('\\', '/');
+    }
+
+    /**
+     * @return the number of stacks that were changed.
+     */
+    private int rewrite(Tag tag) {
+        int[] changed = {0};
+        RegionFiles.visitStacks(tag, stack -> {
+            if (!(stack.get("tag") instanceof CompoundTag root)) return;
+            boolean stackChanged = false;
+            for (var step : steps) stackChanged |= step.migration.migrate(step.facet, root);
+            if (!stackChanged) return;
+            if (root.isEmpty()) stack.remove("tag");
+            changed[0]++;
+        });
+        return changed[0];
+    }
+
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path tempFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    private static void writeRegion(Path file, ByteBuffer original, ByteBuffer[] entries, boolean[] changed) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        header.put(SECTOR_BYTES, original, SECTOR_BYTES, SECTOR_BYTES);
+        int timestamp = (int) (System.currentTimeMillis() / 1000);
+        int sector = HEADER_BYTES / SECTOR_BYTES;
+        var temp = tempFile(file);
+        try (var channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            // Chunks are packed in index order, which also reclaims any unused sectors of the original
+            for (int index = 0; index < entries.length; index++) {
+                var entry = entries[index];
+                if (entry == null) continue;
+                int sectors = (entry.remaining() + SECTOR_BYTES - 1) / SECTOR_BYTES;
+                header.putInt(index * 4, (sector << 8) | sectors);
+                if (changed[index]) header.putInt(SECTOR_BYTES + index * 4, timestamp);
+                writeFully(channel, entry.duplicate(), (long) sector * SECTOR_BYTES);
+                sector += sectors;
+            }
+            // Regions are always a whole number of sectors long
+            if (channel.size() < (long) sector * SECTOR_BYTES) writeFully(channel, ByteBuffer.allocate(1), (long) sector * SECTOR_BYTES - 1);
+            writeFully(channel, header.clear(), 0);
+        }
+        replace(temp, file);
+    }
+
+    private record Step(Facet<?> facet, FacetMigration migration) {}
+
+    private final class RegionTask extends RecursiveAction {
+        private final Path world;
+        private final Path file;
+        private final Counts total;
+
+        private RegionTask(Path world, Path file, Counts total) {
+            this.world = world;
+            this.file = file;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // Read onto the heap rather than mapped, since a mapped file can't be replaced on some platforms
+                var region = ByteBuffer.wrap(Files.readAllBytes(file));
+                if (hasHeader(region)) {
+                    var entries = new ByteBuffer[CHUNKS_PER_REGION];
+                    var changed = new boolean[CHUNKS_PER_REGION];
+                    var counts = new Counts();
+                    var written = Collections.synchronizedList(new ArrayList<Path>());
+                    var obsolete = Collections.synchronizedList(new ArrayList<Path>());
+                    new ChunkTask(file, region, entries, changed, counts, written, obsolete, 0, CHUNKS_PER_REGION).compute();
+                    if (counts.failures > 0) {
+                        LOGGER.warn("Left region file {} untouched, since {} of its chunks couldn't be processed", file, counts.failures);
+                        for (var external : written) Files.deleteIfExists(tempFile(external));
+                    } else if (counts.rewrittenChunks > 0) {
+                        // External files go first, like vanilla writes them; an old region can read a rewritten external chunk,
+                        // but a new region can't read one that was never moved into place
+                        for (var external : written) replace(tempFile(external), external);
+                        writeRegion(file, region, entries, changed);
+                        for (var external : obsolete) Files.deleteIfExists(external);
+                        counts.files++;
+                    }
+                    total.merge(counts);
+                    if (counts.failures > 0) return;
+                }
+                markDone(world, file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to rewrite region file {}", file, e);
+                total.fail();
+            }
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private final Path file;
+        private final ByteBuffer region;
+        private final ByteBuffer[] entries;
+        private final boolean[] changed;
+        private final Counts counts;
+        private final List<Path> written;
+        private final List<Path> obsolete;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(Path file, ByteBuffer region, ByteBuffer[] entries, boolean[] changed, Counts counts, List<Path> written, List<Path> obsolete, int from, int to) {
+            this.file = file;
+            this.region = region;
+            this.entries = entries;
+            this.changed = changed;
+            this.counts = counts;
+            this.written = written;
+            this.obsolete = obsolete;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNKS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(file, region, entries, changed, counts, written, obsolete, from, mid),
+                        new ChunkTask(file, region, entries, changed, counts, written, obsolete, mid, to));
+                return;
+            }
+            var local = new Counts();
+            for (int index = from; index < to; index++) {
+                try {
+                    rewriteChunk(index, local);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to rewrite chunk {} of region file {}", index, file, e);
+                    local.failures++;
+                }
+            }
+            counts.merge(local);
+        }
+
+        private void rewriteChunk(int index, Counts local) throws IOException {
+            int offset = chunkOffset(region, index);
+            if (offset == 0) return; // Not generated
+            var raw = rawChunk(region, offset);
+            entries[index] = raw;
+            var tag = RegionFiles.readChunk(file, region, index);
+            local.chunks++;
+            int stacks = rewrite(tag);
+            if (stacks == 0) return;
+            entries[index] = encode(index, tag, compression(raw, 0));
+            changed[index] = true;
+            local.rewrittenChunks++;
+            local.stacks += stacks;
+        }
+
+        private ByteBuffer encode(int index, CompoundTag tag, int compression) throws IOException {
+            boolean wasExternal = (compression & EXTERNAL_FLAG) != 0;
+            compression &= ~EXTERNAL_FLAG;
+            var data = RegionFiles.compress(tag, compression);
+            if (data.length + CHUNK_HEADER_BYTES > MAX_CHUNK_SECTORS * SECTOR_BYTES) {
+                // Still too large for the region, so it stays external and the region only holds its header;
+                // the external file is only moved into place once every chunk of the region was processed
+                var external = externalChunk(file, index);
+                Files.write(tempFile(external), data);
+                written.add(external);
+                return ByteBuffer.allocate(CHUNK_HEADER_BYTES).putInt(1).put((byte) (compression | EXTERNAL_FLAG)).flip();
+            }
+            // The external file is only stale once the region that no longer refers to it has been written
+            if (wasExternal) obsolete.add(externalChunk(file, index));
+            return ByteBuffer.allocate(data.length + CHUNK_HEADER_BYTES).putInt(data.length + 1).put((byte) compression).put(data).flip();
+        }
+    }
+
+    private final class PlayerTask extends RecursiveAction {
+        private final Path world;
+        private final Path file;
+        private final Counts total;
+
+        private PlayerTask(Path world, Path file, Counts total) {
+            this.world = world;
+            this.file = file;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            var counts = new Counts();
+            try {
+                var tag = RegionFiles.readCompressed(ByteBuffer.wrap(Files.readAllBytes(file)));
+                counts.stacks = rewrite(tag);
+                if (counts.stacks > 0) {
+                    var temp = tempFile(file);
+                    try (var out = Files.newOutputStream(temp)) {
+                        NbtIo.writeCompressed(tag, out);
+                    }
+                    replace(temp, file);
+                    counts.files++;
+                }
+                markDone(world, file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to rewrite data file {}", file, e);
+                counts.failures++;
+            }
+            total.merge(counts);
+        }
+    }
+
+    /**
+     * The outcome of a rewrite.
+     *
+     * @param files the number of region and data files that were processed.
+     * @param skipped the number of files that were skipped because the checkpoint recorded them as already processed.
+     * @param rewrittenFiles the number of files that were changed and written.
+     * @param chunks the number of chunks that were read.
+     * @param rewrittenChunks the number of chunks that were changed and re-encoded.
+     * @param stacks the number of item stacks that were changed.
+     * @param failures the number of files and chunks that couldn't be processed.
+     */
+    public record Result(int files, int skipped, int rewrittenFiles, long chunks, long rewrittenChunks, long stacks, long failures) {}
+
+    private static final class Counts {
+        private int files;
+        private long chunks;
+        private long rewrittenChunks;
+        private long stacks;
+        private long failures;
+
+        private synchronized void fail() {
+            failures++;
+        }
+
+        private synchronized void merge(Counts other) {
+            files += other.files;
+            chunks += other.chunks;
+            rewrittenChunks += other.rewrittenChunks;
+            stacks += other.stacks;
+            failures += other.failures;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CollectionTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NumericTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static dev.denimred.littlethings.facets.Facet.LOGGER;
+import static net.minecraft.nbt.Tag.TAG_END;
+
+/**
+ * Gathers statistics about facet data from the saved files of a world, without starting a server.
+ * <p>
+ * Region files (both terrain and entity regions of every dimension) and data files (player data, saved data, and the level file) are memory-mapped,
+ * and their chunks are decompressed and scanned in parallel on a dedicated fork-join pool.
+ * Every compound that is shaped like a saved item stack is checked, including stacks nested inside of other stacks.
+ * Data is reported as it is stored, so {@linkplain Facet#withMigrations migrations} aren't applied.
+ * <pre>{@code
+ * var report = FacetWorldScanner.of(OWNER, CHARGES).scan(Path.of("saves", "world"));
+ * }</pre>
+ * It can also be run as a standalone program, which takes the world directory followed by the paths of the facets to scan
+ * (such as {@code mymod.charges}) and prints the report.
+ */
+public final class FacetWorldScanner {
+    private static final int CHUNKS_PER_TASK = 32;
+    private static final int MAX_TRACKED_VALUES = 256;
+    private static final int MAX_VALUE_LENGTH = 64;
+    private static final int COMMON_VALUES = 10;
+    private final Facet<?>[] facets;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private FacetWorldScanner(Facet<?>[] facets) {
+        this.facets = facets;
+    }
+
+    /**
+     * Constructs a new scanner for the given facets.
+     *
+     * @param first the first facet to scan for, exists to ensure at least one facet is present in the scanner.
+     * @param rest the remaining facets to scan for.
+     *
+     * @return a new world scanner.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static FacetWorldScanner of(Facet<?> first, Facet<?>... rest) {
+        var facets = new Facet<?>[rest.length + 1];
+        facets[0] = first;
+        System.arraycopy(rest, 0, facets, 1, rest.length);
+        return new FacetWorldScanner(facets);
+    }
+
+    /**
+     * Scans a world with the facets given on the command line, then prints the report.
+     *
+     * @param args the world directory, followed by the paths of the facets to scan, such as {@code mymod.charges} or {@code mymod:charges}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: FacetWorldScanner <world directory> <facet path>...");
+            System.exit(2);
+        }
+        var facets = new Facet<?>[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            var path = args[i].split("[.:]");
+            facets[i - 1] = new Facet<Tag>(TAG_END, CompoundTag::get, CompoundTag::put, path[0], Arrays.copyOfRange(path, 1, path.length));
+        }
+        var report = new FacetWorldScanner(facets).scan(Path.of(args[0]));
+        System.out.printf("Scanned %d files, %d chunks, and %d stacks (%d failures)%n", report.files(), report.chunks(), report.stacks(), report.failures());
+        for (var stats : report.facets()) System.out.println(stats);
+    }
+
+    /**
+     * Sets the number of threads used for scanning. Defaults to the number of available processors.
+     *
+     * @param parallelism the number of threads, which must be at least 1.
+     *
+     * @return this scanner.
+     *
+     * @throws IllegalArgumentException if the parallelism is less than 1.
+     */
+    @Contract("_ -> this")
+    public FacetWorldScanner withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Scans every region, player data, and saved data file, as well as the level file of the provided world.
+     * Files and chunks that can't be read are logged and counted as failures instead of aborting the scan.
+     *
+     * @param world the world directory, which contains the {@code level.dat} file.
+     *
+     * @return the report of the scan.
+     *
+     * @throws IOException if the world directory couldn't be listed.
+     */
+    public Report scan(Path world) throws IOException {
+        var tasks = new ArrayList<RecursiveAction>();
+        var total = new Tally(facets.length);
+        RegionFiles.collect(world, file -> tasks.add(new RegionTask(file, total)), file -> tasks.add(new PlayerTask(file, total)));
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+        }
+        return total.toReport(tasks.size(), facets);
+    }
+
+    private void scan(Tag tag, Tally tally) {
+        RegionFiles.visitStacks(tag, stack -> visitStack(stack, tally));
+    }
+
+    private void visitStack(CompoundTag stack, Tally tally) {
+        tally.stacks++;
+        if (!(stack.get("tag") instanceof CompoundTag root)) return;
+        int count = stack.getInt("Count");
+        for (int i = 0; i < facets.length; i++) {
+            var parent = facets[i].parentPath.resolve(root);
+            var data = parent != null ? facets[i].dataTag(parent) : null;
+            if (data != null) tally.facets[i].record(data, count);
+        }
+    }
+
+    private final class RegionTask extends RecursiveAction {
+        private final Path file;
+        private final Tally total;
+
+        private RegionTask(Path file, Tally total) {
+            this.file = file;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            MappedByteBuffer region;
+            try {
+                region = RegionFiles.map(file);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to map region file {}", file, e);
+                total.fail();
+                return;
+            }
+            if (RegionFiles.hasHeader(region)) new ChunkTask(file, region, 0, RegionFiles.CHUNKS_PER_REGION, total).compute();
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+        private final Path file;
+        private final ByteBuffer region;
+        private final int from;
+        private final int to;
+        private final Tally total;
+
+        private ChunkTask(Path file, ByteBuffer region, int from, int to, Tally total) {
+            this.file = file;
+            this.region = region;
+            this.from = from;
+            this.to = to;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNKS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(file, region, from, mid, total), new ChunkTask(file, region, mid, to, total));
+                return;
+            }
+            var tally = new Tally(facets.length);
+            for (int index = from; index < to; index++) {
+                try {
+                    scanChunk(index, tally);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to read chunk {} of region file {}", index, file, e);
+                    tally.failures++;
+                }
+            }
+            total.merge(tally);
+        }
+
+        private void scanChunk(int index, Tally tally) throws IOException {
+            if (RegionFiles.chunkOffset(region, index) == 0) return; // Not generated
+            scan(RegionFiles.readChunk(file, region, index), tally);
+            tally.chunks++;
+        }
+    }
+
+    private final class PlayerTask extends RecursiveAction {
+        private final Path file;
+        private final Tally total;
+
+        private PlayerTask(Path file, Tally total) {
+            this.file = file;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            var tally = new Tally(facets.length);
+            try {
+                scan(RegionFiles.readCompressed(RegionFiles.map(file)), tally);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to read data file {}", file, e);
+                tally.failures++;
+            }
+            total.merge(tally);
+        }
+    }
+
+    /**
+     * The statistics gathered by a scan.
+     *
+     * @param files the number of region and data files that were scanned.
+     * @param chunks the number of chunks that were read.
+     * @param stacks the number of item stacks that were found, including empty stacks and stacks without any item data.
+     * @param failures the number of files and chunks that couldn't be read.
+     * @param facets the statistics of each scanned facet, in declaration order.
+     */
+    public record Report(int files, long chunks, long stacks, long failures, @Unmodifiable List<FacetStats> facets) {}
+
+    /**
+     * The statistics gathered for a single facet.
+     * Value distributions only cover numeric and short string data, and only track a limited number of distinct values per batch of chunks,
+     * so the counts of {@link #commonValues} are lower bounds for worlds with many distinct values.
+     *
+     * @param facet the path and name of the facet.
+     * @param stacks the number of stacks that had data for the facet.
+     * @param items the total size of the stacks that had data for the facet.
+     * @param values the numeric values of the data, if it was numeric.
+     * @param sizes the sizes of the data, which is the number of elements for lists, arrays, and compounds, and the length for strings.
+     * @param commonValues the most common values of the data and the number of stacks that had them, most common first.
+     * @param otherValues the number of stacks with numeric or string data whose values weren't tracked.
+     */
+    public record FacetStats(String facet, long stacks, long items, DoubleSummaryStatistics values, LongSummaryStatistics sizes,
+                             @Unmodifiable Map<String, Long> commonValues, long otherValues) {
+        @Override
+        public String toString() {
+            var builder = new StringBuilder(facet).append(": ").append(stacks).append(" stacks (").append(items).append(" items)");
+            if (values.getCount() > 0) builder.append(", values %s..%s (mean %.2f)".formatted(values.getMin(), values.getMax(), values.getAverage()));
+            if (sizes.getCount() > 0) builder.append(", sizes %d..%d (mean %.2f)".formatted(sizes.getMin(), sizes.getMax(), sizes.getAverage()));
+            if (!commonValues.isEmpty()) builder.append(", common values ").append(commonValues);
+            return builder.toString();
+        }
+    }
+
+    private static final class Tally {
+        private final FacetTally[] facets;
+        private long chunks;
+        private long stacks;
+        private long failures;
+
+        private Tally(int facetCount) {
+            facets = new FacetTally[facetCount];
+            for (int i = 0; i < facetCount; i++) facets[i] = new FacetTally();
+        }
+
+        private synchronized void fail() {
+            failures++;
+        }
+
+        private synchronized void merge(Tally other) {
+            chunks += other.chunks;
+            stacks += other.stacks;
+            failures += other.failures;
+            for (int i = 0; i < facets.length; i++) facets[i].merge(other.facets[i]);
+        }
+
+        private synchronized Report toReport(int files, Facet<?>[] scanned) {
+            var stats = new ArrayList<FacetStats>(facets.length);
+            for (int i = 0; i < facets.length; i++) stats.add(facets[i].toStats(scanned[i].describe()));
+            return new Report(files, chunks, stacks, failures, List.copyOf(stats));
+        }
+    }
+
+    private static final class FacetTally {
+        private final DoubleSummaryStatistics values = new DoubleSummaryStatistics();
+        private final LongSummaryStatistics sizes = new LongSummaryStatistics();
+        private final Map<String, Long> tracked = new HashMap<>();
+        private long stacks;
+        private long items;
+        private long untracked;
+
+        private void record(Tag data, int count) {
+            stacks++;
+            items += count;
+            String value = null;
+            if (data instanceof NumericTag numeric) {
+                values.accept(numeric.getAsDouble());
+                value = data.getAsString();
+            } else if (data instanceof StringTag) {
+                var string = data.getAsString();
+                sizes.accept(string.length());
+                if (string.length() <= MAX_VALUE_LENGTH) value = string;
+            } else if (data instanceof CollectionTag<?> collection) {
+                sizes.accept(collection.size());
+            } else if (data instanceof CompoundTag compound) {
+                sizes.accept(compound.size());
+            }
+            if (value != null) track(value, 1);
+            else if (data instanceof StringTag) untracked++;
+        }
+
+        private void track(String value, long count) {
+            if (tracked.size() < MAX_TRACKED_VALUES || tracked.containsKey(value)) tracked.merge(value, count, Long::sum);
+            else untracked += count;
+        }
+
+        private void merge(FacetTally other) {
+            stacks += other.stacks;
+            items += other.items;
+            untracked += other.untracked;
+            values.combine(other.values);
+            sizes.combine(other.sizes);
+            other.tracked.forEach(this::track);
+        }
+
+        private FacetStats toStats(String facet) {
+            var common = new LinkedHashMap<String, Long>();
+            var sorted = new ArrayList<>(tracked.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+            long other = untracked;
+            for (int i = 0; i < sorted.size(); i++) {
+                if (i < COMMON_VALUES) common.put(sorted.get(i).getKey(), sorted.get(i).getValue());
+                else other += sorted.get(i).getValue();
+            }
+            return new FacetStats(facet, stacks, items, values, sizes, Collections.unmodifiableMap(common), other);
+        }
+    }
+}
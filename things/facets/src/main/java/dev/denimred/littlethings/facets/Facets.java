@@ -2,16 +2,23 @@ package dev.denimred.littlethings.facets;
 
 import com.mojang.serialization.Codec;
 import dev.denimred.littlethings.annotations.NbtType;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.nbt.*;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import static dev.denimred.littlethings.facets.Facet.LOGGER;
 import static net.minecraft.nbt.Tag.*;
@@ -25,6 +32,31 @@ public final class Facets {
         throw new AssertionError();
     }
 
+    /**
+     * Removes the data of many facets from the provided stack in a single pass.
+     * Parent tags that were left empty are pruned once, after all the data has been removed.
+     *
+     * @param stack the stack to remove data from.
+     * @param facets the facets whose data should be removed.
+     *
+     * @see Facet#remove
+     */
+    public static void removeAll(ItemStack stack, Facet<?>... facets) {
+        var prune = new ArrayList<FacetPath>();
+        for (var facet : facets) {
+            facet.migrate(stack);
+            var parent = facet.parentPath.resolve(stack.getTag());
+            if (parent != null && facet.removeFrom(parent)) {
+                FacetStamps.mark(stack, facet);
+                FacetPath.addDistinct(prune, facet.parentPath);
+            }
+        }
+        for (var path : prune) {
+            path.prune(stack);
+            if (!stack.hasTag()) return;
+        }
+    }
+
     /**
      * Constructs a new boolean facet backed by the standard {@link CompoundTag} functions.
      *
@@ -34,8 +66,8 @@ public final class Facets {
      * @return a new boolean facet.
      */
     @Contract(value = "_, _ -> new", pure = true)
-    public static Facet<Boolean> booleanFacet(String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_BYTE, CompoundTag::getBoolean, CompoundTag::putBoolean, pathFirst, pathRem);
+    public static BooleanFacet booleanFacet(String pathFirst, String... pathRem) {
+        return new BooleanFacet(pathFirst, pathRem);
     }
 
     /**
@@ -73,8 +105,8 @@ public final class Facets {
      * @return a new integer facet.
      */
     @Contract(value = "_, _ -> new", pure = true)
-    public static Facet<Integer> intFacet(String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_INT, CompoundTag::getInt, CompoundTag::putInt, pathFirst, pathRem);
+    public static IntFacet intFacet(String pathFirst, String... pathRem) {
+        return new IntFacet(pathFirst, pathRem);
     }
 
     /**
@@ -86,8 +118,8 @@ public final class Facets {
      * @return a new long facet.
      */
     @Contract(value = "_, _ -> new", pure = true)
-    public static Facet<Long> longFacet(String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_LONG, CompoundTag::getLong, CompoundTag::putLong, pathFirst, pathRem);
+    public static LongFacet longFacet(String pathFirst, String... pathRem) {
+        return new LongFacet(pathFirst, pathRem);
     }
 
     /**
@@ -99,8 +131,8 @@ public final class Facets {
      * @return a new float facet.
      */
     @Contract(value = "_, _ -> new", pure = true)
-    public static Facet<Float> floatFacet(String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_FLOAT, CompoundTag::getFloat, CompoundTag::putFloat, pathFirst, pathRem);
+    public static FloatFacet floatFacet(String pathFirst, String... pathRem) {
+        return new FloatFacet(pathFirst, pathRem);
     }
 
     /**
@@ -112,8 +144,8 @@ public final class Facets {
      * @return a new double facet.
      */
     @Contract(value = "_, _ -> new", pure = true)
-    public static Facet<Double> doubleFacet(String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_DOUBLE, CompoundTag::getDouble, CompoundTag::putDouble, pathFirst, pathRem);
+    public static DoubleFacet doubleFacet(String pathFirst, String... pathRem) {
+        return new DoubleFacet(pathFirst, pathRem);
     }
 
     /**
@@ -181,6 +213,36 @@ public final class Facets {
         return new Facet<>(TAG_COMPOUND, CompoundTag::getCompound, CompoundTag::put, pathFirst, pathRem);
     }
 
+    /**
+     * Constructs a new compressed compound tag facet, for large compounds that are rarely read.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new compressed compound tag facet.
+     *
+     * @see CompressedFacet
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static CompressedFacet<CompoundTag> compressedTagFacet(String pathFirst, String... pathRem) {
+        return new CompressedFacet<>(tag -> tag instanceof CompoundTag compound ? compound : null, tag -> tag, CompoundTag::copy, pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new deduplicated compound tag facet, for large compounds that many stacks share.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new deduplicated compound tag facet.
+     *
+     * @see DeduplicatedFacet
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static DeduplicatedFacet<CompoundTag> deduplicatedTagFacet(String pathFirst, String... pathRem) {
+        return new DeduplicatedFacet<>(tag -> tag instanceof CompoundTag compound ? compound : null, tag -> tag, pathFirst, pathRem);
+    }
+
     /**
      * Constructs a new UUID facet backed by the standard {@link CompoundTag} functions.
      *
@@ -282,6 +344,76 @@ public final class Facets {
         }, pathFirst, pathRem);
     }
 
+    /**
+     * Constructs a new int list facet. The returned lists write through to the backing array without boxing.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new int list facet.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static Facet<IntList> intListFacet(String pathFirst, String... pathRem) {
+        return new Facet<>(TAG_INT_ARRAY, IntListTagDelegate.reader(), IntListTagDelegate.writer(), pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new long list facet. The returned lists write through to the backing array without boxing.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new long list facet.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static Facet<LongList> longListFacet(String pathFirst, String... pathRem) {
+        return new Facet<>(TAG_LONG_ARRAY, LongListTagDelegate.reader(), LongListTagDelegate.writer(), pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new float list facet, stored as raw bits in an int array tag. The returned lists write through to the backing array without boxing.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new float list facet.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static Facet<FloatList> floatListFacet(String pathFirst, String... pathRem) {
+        return new Facet<>(TAG_INT_ARRAY, FloatListTagDelegate.reader(), FloatListTagDelegate.writer(), pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new double list facet, stored as raw bits in a long array tag. The returned lists write through to the backing array without boxing.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     *
+     * @return a new double list facet.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static Facet<DoubleList> doubleListFacet(String pathFirst, String... pathRem) {
+        return new Facet<>(TAG_LONG_ARRAY, DoubleListTagDelegate.reader(), DoubleListTagDelegate.writer(), pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new map facet, stored as a compound tag with one entry per key.
+     * The returned maps are lazy write-through views, so reading or updating a single entry doesn't touch the rest of the map.
+     *
+     * @param keyCodec the codec used for keys, which must encode to strings.
+     * @param valueCodec the codec used for values.
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     * @param <K> the key type of the map.
+     * @param <V> the value type of the map.
+     *
+     * @return a new map facet of the specified types.
+     */
+    @Contract(value = "_, _, _, _ -> new", pure = true)
+    public static <K, V> Facet<Map<K, V>> mapFacet(Codec<K> keyCodec, Codec<V> valueCodec, String pathFirst, String... pathRem) {
+        return new Facet<>(TAG_COMPOUND, MapTagDelegate.reader(keyCodec, valueCodec), MapTagDelegate.writer(keyCodec, valueCodec), pathFirst, pathRem);
+    }
+
     /**
      * Constructs a new codec-backed facet of the specified type.
      *
@@ -294,14 +426,54 @@ public final class Facets {
      */
     @Contract(value = "_, _, _ -> new", pure = true)
     public static <T> Facet<T> codecFacet(Codec<T> codec, String pathFirst, String... pathRem) {
-        return new Facet<>(TAG_END, (tag, name) -> parseCodec(codec, tag, name), (tag, name, value) -> encodeCodec(codec, tag, name, value), pathFirst, pathRem);
+        return new Facet<>(TAG_END, (tag, name) -> {
+            var raw = tag.get(name);
+            return raw != null ? parseCodec(codec, raw) : null;
+        }, (tag, name, value) -> {
+            var encoded = encodeCodec(codec, value);
+            if (encoded != null) tag.put(name, encoded);
+        }, pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new compressed facet backed by a {@link Codec}, for large values that are rarely read.
+     *
+     * @param codec the codec used to encode and decode the facet data.
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     * @param <T> the type of data that the codec handles.
+     *
+     * @return a new compressed codec facet.
+     *
+     * @see CompressedFacet
+     */
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static <T> CompressedFacet<T> compressedCodecFacet(Codec<T> codec, String pathFirst, String... pathRem) {
+        return new CompressedFacet<>(tag -> parseCodec(codec, tag), value -> encodeCodec(codec, value), UnaryOperator.identity(), pathFirst, pathRem);
+    }
+
+    /**
+     * Constructs a new deduplicated facet backed by a {@link Codec}, for large values that many stacks share.
+     *
+     * @param codec the codec used to encode and decode the facet data.
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     * @param <T> the type of data that the codec handles.
+     *
+     * @return a new deduplicated codec facet.
+     *
+     * @see DeduplicatedFacet
+     */
+    @Contract(value = "_, _, _ -> new", pure = true)
+    public static <T> DeduplicatedFacet<T> deduplicatedCodecFacet(Codec<T> codec, String pathFirst, String... pathRem) {
+        return new DeduplicatedFacet<>(tag -> parseCodec(codec, tag), value -> encodeCodec(codec, value), pathFirst, pathRem);
     }
 
-    private static <T> @Nullable T parseCodec(Codec<T> codec, CompoundTag tag, String name) {
-        return codec.parse(NbtOps.INSTANCE, tag.get(name)).resultOrPartial(s -> LOGGER.warn("Failed to parse codec facet: {}", s)).orElse(null);
+    private static <T> @Nullable T parseCodec(Codec<T> codec, Tag tag) {
+        return codec.parse(NbtOps.INSTANCE, tag).resultOrPartial(s -> LOGGER.warn("Failed to parse codec facet: {}", s)).orElse(null);
     }
 
-    private static <T> void encodeCodec(Codec<T> codec, CompoundTag tag, String name, T value) {
-        codec.encodeStart(NbtOps.INSTANCE, value).resultOrPartial(s -> LOGGER.warn("Failed to encode codec facet: {}", s)).ifPresent(t -> tag.put(name, t));
+    private static <T> @Nullable Tag encodeCodec(Codec<T> codec, T value) {
+        return codec.encodeStart(NbtOps.INSTANCE, value).resultOrPartial(s -> LOGGER.warn("Failed to encode codec facet: {}", s)).orElse(null);
     }
 }
@@ -0,0 +1,62 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.FloatTag;
+import net.minecraft.world.item.ItemStack;
+
+import static net.minecraft.nbt.Tag.TAG_FLOAT;
+
+/**
+ * A {@link Facet} specialized for float values, which can be read and written without boxing.
+ * <p>
+ * The boxed {@link Facet} API remains available for callers that work with generic facets.
+ */
+public final class FloatFacet extends Facet<Float> {
+    /**
+     * Constructs a new float facet with the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     */
+    public FloatFacet(String pathFirst, String... pathRem) {
+        super(TAG_FLOAT, CompoundTag::getFloat, CompoundTag::putFloat, pathFirst, pathRem);
+    }
+
+    /**
+     * Retrieves data from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
+     */
+    public float getFloat(ItemStack stack, float fallback) {
+        return getRawTag(stack) instanceof FloatTag tag ? tag.getAsFloat() : fallback;
+    }
+
+    /**
+     * Writes data to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided value to.
+     * @param value the value to be written to the stack.
+     */
+    public void setFloat(ItemStack stack, float value) {
+        putTag(stack, FloatTag.valueOf(value));
+    }
+
+    /**
+     * Adds to the data stored in the stack and writes the result back, resolving the path only once.
+     *
+     * @param stack the item stack to modify.
+     * @param delta the amount to add to the stored value.
+     * @param fallback the value to add to if no data was present.
+     *
+     * @return the new value that was written to the stack.
+     */
+    public float addAndGet(ItemStack stack, float delta, float fallback) {
+        var parent = getOrCreateParentTag(stack);
+        float value = (parent.get(name) instanceof FloatTag tag ? tag.getAsFloat() : fallback) + delta;
+        putTag(stack, parent, FloatTag.valueOf(value));
+        return value;
+    }
+}
@@ -0,0 +1,119 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import it.unimi.dsi.fastutil.floats.AbstractFloatList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.floats.FloatCollection;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import net.minecraft.nbt.IntArrayTag;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A write-through {@link FloatList} view over an {@link IntArrayTag} of raw float bits, which never creates per-element objects.
+ * <p>
+ * Element updates happen in-place on the tag's backing array, while structural changes are made by its {@link ArrayTagStorage},
+ * so bulk operations should be preferred over repeated single-element ones.
+ */
+final class FloatListTagDelegate extends AbstractFloatList implements RandomAccess, TagView {
+    private final ArrayTagStorage.Ints storage;
+
+    private FloatListTagDelegate(ArrayTagStorage.Ints storage) {
+        this.storage = storage;
+    }
+
+    static Reader<FloatList> reader() {
+        return ArrayTagStorage.Ints.reader(FloatListTagDelegate::new);
+    }
+
+    static Writer<FloatList> writer() {
+        return ArrayTagStorage.Ints.writer(FloatListTagDelegate::encode);
+    }
+
+    private static int[] encode(FloatList list) {
+        var raw = new int[list.size()];
+        for (int i = 0; i < raw.length; i++) raw[i] = Float.floatToRawIntBits(list.getFloat(i));
+        return raw;
+    }
+
+    @Override
+    public void bind(Runnable listener) {
+        storage.bind(listener);
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return Float.intBitsToFloat(storage.data[index]);
+    }
+
+    @Override
+    public float set(int index, float k) {
+        float existing = Float.intBitsToFloat(storage.data[index]);
+        storage.data[index] = Float.floatToRawIntBits(k);
+        storage.changed();
+        return existing;
+    }
+
+    @Override
+    public void add(int index, float k) {
+        storage.insert(index, new int[]{Float.floatToRawIntBits(k)}, 0, 1);
+    }
+
+    @Override
+    public float removeFloat(int index) {
+        float existing = Float.intBitsToFloat(storage.data[index]);
+        storage.removeAt(index);
+        return existing;
+    }
+
+    @Override
+    public void addElements(int index, float[] a, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, a.length);
+        var raw = new int[length];
+        for (int i = 0; i < length; i++) raw[i] = Float.floatToRawIntBits(a[offset + i]);
+        storage.insert(index, raw, 0, length);
+    }
+
+    @Override
+    public void removeElements(int from, int to) {
+        storage.remove(from, to);
+    }
+
+    @Override
+    public boolean addAll(int index, FloatCollection c) {
+        var elements = c.toFloatArray();
+        addElements(index, elements, 0, elements.length);
+        return elements.length > 0;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Float> c) {
+        return addAll(index, c instanceof FloatCollection primitive ? primitive : new FloatArrayList(c));
+    }
+
+    @Override
+    public void getElements(int from, float[] a, int offset, int length) {
+        storage.checkBulk(from, length, a.length, offset);
+        for (int i = 0; i < length; i++) a[offset + i] = Float.intBitsToFloat(storage.data[from + i]);
+    }
+
+    @Override
+    public void setElements(int index, float[] a, int offset, int length) {
+        storage.checkBulk(index, length, a.length, offset);
+        for (int i = 0; i < length; i++) storage.data[index + i] = Float.floatToRawIntBits(a[offset + i]);
+        storage.changed();
+    }
+
+    @Override
+    public void size(int size) {
+        storage.resize(size);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+}
@@ -0,0 +1,62 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.world.item.ItemStack;
+
+import static net.minecraft.nbt.Tag.TAG_INT;
+
+/**
+ * A {@link Facet} specialized for integer values, which can be read and written without boxing.
+ * <p>
+ * The boxed {@link Facet} API remains available for callers that work with generic facets.
+ */
+public final class IntFacet extends Facet<Integer> {
+    /**
+     * Constructs a new integer facet with the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     */
+    public IntFacet(String pathFirst, String... pathRem) {
+        super(TAG_INT, CompoundTag::getInt, CompoundTag::putInt, pathFirst, pathRem);
+    }
+
+    /**
+     * Retrieves data from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
+     */
+    public int getInt(ItemStack stack, int fallback) {
+        return getRawTag(stack) instanceof IntTag tag ? tag.getAsInt() : fallback;
+    }
+
+    /**
+     * Writes data to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided value to.
+     * @param value the value to be written to the stack.
+     */
+    public void setInt(ItemStack stack, int value) {
+        putTag(stack, IntTag.valueOf(value));
+    }
+
+    /**
+     * Adds to the data stored in the stack and writes the result back, resolving the path only once.
+     *
+     * @param stack the item stack to modify.
+     * @param delta the amount to add to the stored value.
+     * @param fallback the value to add to if no data was present.
+     *
+     * @return the new value that was written to the stack.
+     */
+    public int addAndGet(ItemStack stack, int delta, int fallback) {
+        var parent = getOrCreateParentTag(stack);
+        int value = (parent.get(name) instanceof IntTag tag ? tag.getAsInt() : fallback) + delta;
+        putTag(stack, parent, IntTag.valueOf(value));
+        return value;
+    }
+}
@@ -0,0 +1,124 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import it.unimi.dsi.fastutil.ints.AbstractIntList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntCollection;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.nbt.IntArrayTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A write-through {@link IntList} view over an {@link IntArrayTag}, which never creates per-element objects.
+ * <p>
+ * Element updates and sorting happen in-place on the tag's backing array, while structural changes are made by its {@link ArrayTagStorage},
+ * so bulk operations should be preferred over repeated single-element ones.
+ */
+final class IntListTagDelegate extends AbstractIntList implements RandomAccess, TagView {
+    private final ArrayTagStorage.Ints storage;
+
+    private IntListTagDelegate(ArrayTagStorage.Ints storage) {
+        this.storage = storage;
+    }
+
+    static Reader<IntList> reader() {
+        return ArrayTagStorage.Ints.reader(IntListTagDelegate::new);
+    }
+
+    static Writer<IntList> writer() {
+        return ArrayTagStorage.Ints.writer(IntList::toIntArray);
+    }
+
+    @Override
+    public void bind(Runnable listener) {
+        storage.bind(listener);
+    }
+
+    @Override
+    public int getInt(int index) {
+        return storage.data[index];
+    }
+
+    @Override
+    public int set(int index, int k) {
+        int existing = storage.data[index];
+        storage.data[index] = k;
+        storage.changed();
+        return existing;
+    }
+
+    @Override
+    public void add(int index, int k) {
+        storage.insert(index, new int[]{k}, 0, 1);
+    }
+
+    @Override
+    public int removeInt(int index) {
+        int existing = storage.data[index];
+        storage.removeAt(index);
+        return existing;
+    }
+
+    @Override
+    public void addElements(int index, int[] a, int offset, int length) {
+        storage.insert(index, a, offset, length);
+    }
+
+    @Override
+    public void removeElements(int from, int to) {
+        storage.remove(from, to);
+    }
+
+    @Override
+    public boolean addAll(int index, IntCollection c) {
+        var elements = c.toIntArray();
+        storage.insert(index, elements, 0, elements.length);
+        return elements.length > 0;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Integer> c) {
+        return addAll(index, c instanceof IntCollection primitive ? primitive : new IntArrayList(c));
+    }
+
+    @Override
+    public void getElements(int from, int[] a, int offset, int length) {
+        storage.get(from, a, offset, length);
+    }
+
+    @Override
+    public void setElements(int index, int[] a, int offset, int length) {
+        storage.set(index, a, offset, length);
+    }
+
+    @Override
+    public void sort(@Nullable IntComparator comparator) {
+        if (comparator == null) {
+            IntArrays.unstableSort(storage.data);
+        } else {
+            IntArrays.mergeSort(storage.data, comparator);
+        }
+        storage.changed();
+    }
+
+    @Override
+    public void size(int size) {
+        storage.resize(size);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    @Override
+    public int[] toIntArray() {
+        return storage.copy();
+    }
+}
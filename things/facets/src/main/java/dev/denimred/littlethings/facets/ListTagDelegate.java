@@ -11,10 +11,11 @@ import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
-final class ListTagDelegate<T> extends AbstractList<T> {
+final class ListTagDelegate<T> extends AbstractList<T> implements TagView {
     private final ListTag raw;
     private final BiFunction<ListTag, Integer, T> reader;
     private final Function<T, Tag> writer;
+    private @Nullable Runnable listener;
 
     private ListTagDelegate(ListTag raw, BiFunction<ListTag, Integer, T> reader, Function<T, Tag> writer) {
         this.raw = raw;
@@ -45,6 +46,16 @@ final class ListTagDelegate<T> extends AbstractList<T> {
         };
     }
 
+    @Override
+    public void bind(Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void changed() {
+        var listener = this.listener;
+        if (listener != null) listener.run();
+    }
+
     @Override
     public T get(int index) {
         return reader.apply(raw, index);
@@ -54,18 +65,21 @@ final class ListTagDelegate<T> extends AbstractList<T> {
     public T set(int index, T element) {
         T existing = get(index);
         raw.set(index, writer.apply(element));
+        changed();
         return existing;
     }
 
     @Override
     public void add(int index, T element) {
         raw.add(index, writer.apply(element));
+        changed();
     }
 
     @Override
     public T remove(int index) {
         T existing = get(index);
         raw.remove(index);
+        changed();
         return existing;
     }
 
@@ -0,0 +1,62 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.LongTag;
+import net.minecraft.world.item.ItemStack;
+
+import static net.minecraft.nbt.Tag.TAG_LONG;
+
+/**
+ * A {@link Facet} specialized for long values, which can be read and written without boxing.
+ * <p>
+ * The boxed {@link Facet} API remains available for callers that work with generic facets.
+ */
+public final class LongFacet extends Facet<Long> {
+    /**
+     * Constructs a new long facet with the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the facet's name.
+     */
+    public LongFacet(String pathFirst, String... pathRem) {
+        super(TAG_LONG, CompoundTag::getLong, CompoundTag::putLong, pathFirst, pathRem);
+    }
+
+    /**
+     * Retrieves data from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the facet data stored in the stack, or the provided fallback if no applicable data was present.
+     */
+    public long getLong(ItemStack stack, long fallback) {
+        return getRawTag(stack) instanceof LongTag tag ? tag.getAsLong() : fallback;
+    }
+
+    /**
+     * Writes data to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided value to.
+     * @param value the value to be written to the stack.
+     */
+    public void setLong(ItemStack stack, long value) {
+        putTag(stack, LongTag.valueOf(value));
+    }
+
+    /**
+     * Adds to the data stored in the stack and writes the result back, resolving the path only once.
+     *
+     * @param stack the item stack to modify.
+     * @param delta the amount to add to the stored value.
+     * @param fallback the value to add to if no data was present.
+     *
+     * @return the new value that was written to the stack.
+     */
+    public long addAndGet(ItemStack stack, long delta, long fallback) {
+        var parent = getOrCreateParentTag(stack);
+        long value = (parent.get(name) instanceof LongTag tag ? tag.getAsLong() : fallback) + delta;
+        putTag(stack, parent, LongTag.valueOf(value));
+        return value;
+    }
+}
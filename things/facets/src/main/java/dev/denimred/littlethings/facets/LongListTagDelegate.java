@@ -0,0 +1,124 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import it.unimi.dsi.fastutil.longs.AbstractLongList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongComparator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.nbt.LongArrayTag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A write-through {@link LongList} view over a {@link LongArrayTag}, which never creates per-element objects.
+ * <p>
+ * Element updates and sorting happen in-place on the tag's backing array, while structural changes are made by its {@link ArrayTagStorage},
+ * so bulk operations should be preferred over repeated single-element ones.
+ */
+final class LongListTagDelegate extends AbstractLongList implements RandomAccess, TagView {
+    private final ArrayTagStorage.Longs storage;
+
+    private LongListTagDelegate(ArrayTagStorage.Longs storage) {
+        this.storage = storage;
+    }
+
+    static Reader<LongList> reader() {
+        return ArrayTagStorage.Longs.reader(LongListTagDelegate::new);
+    }
+
+    static Writer<LongList> writer() {
+        return ArrayTagStorage.Longs.writer(LongList::toLongArray);
+    }
+
+    @Override
+    public void bind(Runnable listener) {
+        storage.bind(listener);
+    }
+
+    @Override
+    public long getLong(int index) {
+        return storage.data[index];
+    }
+
+    @Override
+    public long set(int index, long k) {
+        long existing = storage.data[index];
+        storage.data[index] = k;
+        storage.changed();
+        return existing;
+    }
+
+    @Override
+    public void add(int index, long k) {
+        storage.insert(index, new long[]{k}, 0, 1);
+    }
+
+    @Override
+    public long removeLong(int index) {
+        long existing = storage.data[index];
+        storage.removeAt(index);
+        return existing;
+    }
+
+    @Override
+    public void addElements(int index, long[] a, int offset, int length) {
+        storage.insert(index, a, offset, length);
+    }
+
+    @Override
+    public void removeElements(int from, int to) {
+        storage.remove(from, to);
+    }
+
+    @Override
+    public boolean addAll(int index, LongCollection c) {
+        var elements = c.toLongArray();
+        storage.insert(index, elements, 0, elements.length);
+        return elements.length > 0;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Long> c) {
+        return addAll(index, c instanceof LongCollection primitive ? primitive : new LongArrayList(c));
+    }
+
+    @Override
+    public void getElements(int from, long[] a, int offset, int length) {
+        storage.get(from, a, offset, length);
+    }
+
+    @Override
+    public void setElements(int index, long[] a, int offset, int length) {
+        storage.set(index, a, offset, length);
+    }
+
+    @Override
+    public void sort(@Nullable LongComparator comparator) {
+        if (comparator == null) {
+            LongArrays.unstableSort(storage.data);
+        } else {
+            LongArrays.mergeSort(storage.data, comparator);
+        }
+        storage.changed();
+    }
+
+    @Override
+    public void size(int size) {
+        storage.resize(size);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    @Override
+    public long[] toLongArray() {
+        return storage.copy();
+    }
+}
@@ -0,0 +1,254 @@
+package dev.denimred.littlethings.facets;
+
+import com.mojang.serialization.Codec;
+import dev.denimred.littlethings.facets.Facet.Reader;
+import dev.denimred.littlethings.facets.Facet.Writer;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static dev.denimred.littlethings.facets.Facet.LOGGER;
+
+/**
+ * A lazy write-through {@link Map} view over a {@link CompoundTag}. Keys and values are only decoded when they are accessed,
+ * and every update only touches the key that it affects.
+ * <p>
+ * Keys must encode to strings. Entries whose key or value can't be decoded are skipped while iterating, but still count towards {@link #size}.
+ * <p>
+ * Removing the last entry removes the map's tag from its parent, the same as writing an empty map does,
+ * and adding an entry to an empty map puts the tag back.
+ */
+final class MapTagDelegate<K, V> extends AbstractMap<K, V> implements TagView {
+    private final CompoundTag parent;
+    private final String name;
+    private final CompoundTag raw;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private boolean detached;
+    private @Nullable Set<Map.Entry<K, V>> entrySet;
+    private @Nullable Runnable listener;
+
+    private MapTagDelegate(CompoundTag parent, String name, CompoundTag raw, boolean detached, Codec<K> keyCodec, Codec<V> valueCodec) {
+        this.parent = parent;
+        this.name = name;
+        this.raw = raw;
+        this.detached = detached;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    static <K, V> Reader<Map<K, V>> reader(Codec<K> keyCodec, Codec<V> valueCodec) {
+        return (tag, name) -> tag.get(name) instanceof CompoundTag raw ? new MapTagDelegate<>(tag, name, raw, false, keyCodec, valueCodec) : null;
+    }
+
+    static <K, V> Writer<Map<K, V>> writer(Codec<K> keyCodec, Codec<V> valueCodec) {
+        return (tag, name, map) -> {
+            // The tag is only put in place once the first entry is written, so empty maps leave no data behind
+            var delegate = new MapTagDelegate<>(tag, name, new CompoundTag(), true, keyCodec, valueCodec);
+            tag.remove(name);
+            map.forEach(delegate::put);
+        };
+    }
+
+    @Override
+    public void bind(Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void changed() {
+        if (raw.isEmpty()) {
+            if (!detached) parent.remove(name);
+            detached = true;
+        } else if (detached) {
+            parent.put(name, raw);
+            detached = false;
+        }
+        var listener = this.listener;
+        if (listener != null) listener.run();
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable String encodeKey(@Nullable Object key) {
+        if (key == null) return null;
+        try {
+            return keyCodec.encodeStart(NbtOps.INSTANCE, (K) key).result().orElse(null) instanceof StringTag tag ? tag.getAsString() : null;
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    private String encodeKeyOrThrow(K key) {
+        var encoded = encodeKey(key);
+        if (encoded == null) throw new IllegalArgumentException("Map facet key " + key + " couldn't be encoded to a string");
+        return encoded;
+    }
+
+    private @Nullable K decodeKey(String key) {
+        return keyCodec.parse(NbtOps.INSTANCE, StringTag.valueOf(key)).resultOrPartial(s -> LOGGER.warn("Failed to parse map facet key: {}", s)).orElse(null);
+    }
+
+    private @Nullable V decodeValue(@Nullable Tag tag) {
+        if (tag == null) return null;
+        return valueCodec.parse(NbtOps.INSTANCE, tag).resultOrPartial(s -> LOGGER.warn("Failed to parse map facet value: {}", s)).orElse(null);
+    }
+
+    private Tag encodeValue(V value) {
+        return valueCodec.encodeStart(NbtOps.INSTANCE, value).resultOrPartial(s -> LOGGER.warn("Failed to encode map facet value: {}", s))
+                .orElseThrow(() -> new IllegalArgumentException("Map facet value " + value + " couldn't be encoded"));
+    }
+
+    @Override
+    public @Nullable V get(Object key) {
+        var encoded = encodeKey(key);
+        return encoded != null ? decodeValue(raw.get(encoded)) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        var encoded = encodeKey(key);
+        return encoded != null && raw.contains(encoded);
+    }
+
+    @Override
+    public @Nullable V put(K key, V value) {
+        var encoded = encodeKeyOrThrow(key);
+        @Nullable V existing = decodeValue(raw.put(encoded, encodeValue(value)));
+        changed();
+        return existing;
+    }
+
+    @Override
+    public @Nullable V remove(Object key) {
+        var encoded = encodeKey(key);
+        if (encoded == null) return null;
+        var existingTag = raw.get(encoded);
+        if (existingTag == null) return null;
+        @Nullable V existing = decodeValue(existingTag);
+        raw.remove(encoded);
+        changed();
+        return existing;
+    }
+
+    @Override
+    public void clear() {
+        if (raw.isEmpty()) return;
+        for (String key : List.copyOf(raw.getAllKeys())) raw.remove(key);
+        changed();
+    }
+
+    @Override
+    public int size() {
+        return raw.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return raw.isEmpty();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        var set = entrySet;
+        if (set == null) entrySet = set = new EntrySet();
+        return set;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(List.copyOf(raw.getAllKeys()).iterator());
+        }
+
+        @Override
+        public int size() {
+            return raw.size();
+        }
+
+        @Override
+        public void clear() {
+            MapTagDelegate.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<String> keys;
+        private @Nullable Entry next;
+        private @Nullable Entry last;
+
+        private EntryIterator(Iterator<String> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+                var key = keys.next();
+                @Nullable K decoded = decodeKey(key);
+                if (decoded != null) next = new Entry(key, decoded);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            last = next;
+            next = null;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) throw new IllegalStateException();
+            raw.remove(last.raw);
+            last = null;
+            changed();
+        }
+    }
+
+    private final class Entry implements Map.Entry<K, V> {
+        private final String raw;
+        private final K key;
+
+        private Entry(String raw, K key) {
+            this.raw = raw;
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public @Nullable V getValue() {
+            return decodeValue(MapTagDelegate.this.raw.get(raw));
+        }
+
+        @Override
+        public @Nullable V setValue(V value) {
+            @Nullable V existing = decodeValue(MapTagDelegate.this.raw.put(raw, encodeValue(value)));
+            changed();
+            return existing;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Map.Entry<?, ?> entry && key.equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
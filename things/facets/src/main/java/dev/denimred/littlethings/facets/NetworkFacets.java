@@ -0,0 +1,152 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Keeps {@linkplain Facet#serverOnly server-only} facets out of item data that is sent to clients,
+ * and replaces the references of {@linkplain DeduplicatedFacet deduplicated facets} with their payloads, since clients have no payload store.
+ * <p>
+ * This class doesn't hook into networking by itself, since the method of doing so differs depending on the mod loader.
+ * To make use of it, the item tag written by {@link net.minecraft.network.FriendlyByteBuf#writeItem} must be passed through {@link #prepareForNetwork}
+ * (for example, with a mixin that modifies the argument of its {@link net.minecraft.network.FriendlyByteBuf#writeNbt} call).
+ * <p>
+ * Keep in mind that clients in creative mode send whole stacks back to the server, as they see them. Stripped data is lost
+ * as soon as a creative player touches the stack in the creative inventory screen, so server-only facets should only hold data
+ * that the server can afford to lose or rebuild (such as caches), never the only copy of something the player owns.
+ */
+public final class NetworkFacets {
+    private static final List<Facet<?>> SERVER_ONLY = new CopyOnWriteArrayList<>();
+    private static final List<Facet<?>> DEDUPLICATED = new CopyOnWriteArrayList<>();
+
+    private NetworkFacets() {
+        throw new AssertionError();
+    }
+
+    static void register(Facet<?> facet) {
+        SERVER_ONLY.add(facet);
+    }
+
+    static void registerDeduplicated(Facet<?> facet) {
+        DEDUPLICATED.add(facet);
+    }
+
+    /**
+     * Prepares item data for being sent to clients by replacing the data of server-only facets with their client projections,
+     * and the references of deduplicated facets with their payloads. Server-only data in an older layout is migrated before it's projected.
+     * The provided tag is never modified; if anything needs to be replaced, only the compounds along the affected paths are copied.
+     *
+     * @param tag the item data that is about to be sent.
+     *
+     * @return the tag that should be sent instead, which is the same tag if nothing needed to be replaced.
+     */
+    @Contract(value = "null -> null; !null -> !null", pure = true)
+    public static @Nullable CompoundTag prepareForNetwork(@Nullable CompoundTag tag) {
+        if (tag == null) return null;
+        var result = tag;
+        boolean copiedCompounds = false;
+        for (var facet : SERVER_ONLY) {
+            var parent = facet.parentPath.resolve(result);
+            if ((parent == null || !facet.isIn(parent)) && facet.getDataVersion() > 0) {
+                // Data in an older layout has to be migrated before it can be projected; migrations may move data along any path,
+                // so every compound is copied instead of just the facet's path (lists and other tags are still shared)
+                var migrated = copiedCompounds ? result : copyCompounds(result);
+                if (facet.migrate(migrated)) {
+                    result = migrated;
+                    copiedCompounds = true;
+                    parent = facet.parentPath.resolve(result);
+                }
+            }
+            if (parent == null || !parent.contains(facet.name)) continue;
+            if (result == tag) result = shallowCopy(tag);
+            project(facet, copyPath(facet.parentPath, result));
+        }
+        for (var facet : DEDUPLICATED) {
+            var parent = facet.parentPath.resolve(result);
+            var stored = parent != null ? parent.get(facet.name) : null;
+            if (stored == null || !FacetPayloadStore.isReference(stored)) continue;
+            if (result == tag) result = shallowCopy(tag);
+            var payload = FacetPayloadStore.resolve(stored);
+            var copy = copyPath(facet.parentPath, result);
+            // Stored payloads are never modified, so they can be sent without copying
+            if (payload != null) copy.put(facet.name, payload);
+            else copy.remove(facet.name);
+        }
+        return result;
+    }
+
+    private static <T> void project(Facet<T> facet, CompoundTag parent) {
+        var stored = parent.get(facet.name);
+        var projection = facet.getClientProjection();
+        var cache = facet.getProjectionCache();
+        if (stored == null || projection == null || cache == null) {
+            facet.strip(parent);
+            return;
+        }
+        var entry = cache.lookup(stored);
+        Tag projected;
+        if (entry != null) {
+            projected = entry.value();
+        } else {
+            projected = encodeProjection(facet, projection, stored);
+            cache.store(stored, projected);
+        }
+        // Cached projections are never modified, so they can be sent without copying
+        if (projected != null) parent.put(facet.name, projected);
+        else parent.remove(facet.name);
+    }
+
+    /**
+     * @return the tag that replaces the stored tag, which still holds the data of any other facets that share it (such as packed facets).
+     */
+    private static <T> @Nullable Tag encodeProjection(Facet<T> facet, Function<T, @Nullable T> projection, Tag stored) {
+        var scratch = new CompoundTag();
+        scratch.put(facet.name, stored);
+        @Nullable T value = facet.read(scratch);
+        facet.strip(scratch);
+        @Nullable T projected = value != null ? projection.apply(value) : null;
+        if (projected != null) facet.write(scratch, projected);
+        return scratch.get(facet.name);
+    }
+
+    /**
+     * Copies every compound of the tree, while sharing every other tag, so that compounds can be changed without touching the original.
+     */
+    private static CompoundTag copyCompounds(CompoundTag tag) {
+        var copy = new CompoundTag();
+        for (String key : tag.getAllKeys()) {
+            var child = tag.get(key);
+            if (child != null) copy.put(key, child instanceof CompoundTag compound ? copyCompounds(compound) : child);
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces every compound along the path with a shallow copy, so that the leaf can be changed without touching the original.
+     */
+    private static CompoundTag copyPath(FacetPath path, CompoundTag root) {
+        var tag = root;
+        for (int i = 0, depth = path.depth(); i < depth; i++) {
+            var key = path.key(i);
+            var copy = tag.get(key) instanceof CompoundTag child ? shallowCopy(child) : new CompoundTag();
+            tag.put(key, copy);
+            tag = copy;
+        }
+        return tag;
+    }
+
+    private static CompoundTag shallowCopy(CompoundTag tag) {
+        var copy = new CompoundTag();
+        for (String key : tag.getAllKeys()) {
+            var child = tag.get(key);
+            if (child != null) copy.put(key, child);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,169 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.advancements.critereon.NbtPredicate;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import static net.minecraft.nbt.Tag.TAG_END;
+
+/**
+ * A {@link Facet} that shares a single packed NBT tag with the other members of its {@link PackedLayout}.
+ * <p>
+ * Reads and writes are mask-and-shift operations on the packed tag. Each member has its own presence bit,
+ * so {@link #isIn} and {@link #remove} behave the same as they do for facets stored in their own tags.
+ * Members can be {@linkplain #serverOnly server-only} on their own, in which case only their bits are cleared from data sent to clients,
+ * and {@linkplain #createPredicate predicates} only compare the member's bits of the packed tag.
+ *
+ * @param <T> the type that this facet handles.
+ *
+ * @see PackedLayout
+ */
+public final class PackedFacet<T> extends Facet<T> {
+    private final Slot slot;
+    private final ToIntFunction<T> encoder;
+
+    PackedFacet(PackedLayout layout, int word, int shift, int bits, IntFunction<T> decoder, ToIntFunction<T> encoder) {
+        this(new Slot(layout, word, shift, bits), decoder, encoder);
+    }
+
+    private PackedFacet(Slot slot, IntFunction<T> decoder, ToIntFunction<T> encoder) {
+        super(TAG_END, (tag, name) -> slot.isIn(tag, name) ? decoder.apply(slot.read(tag, name)) : null,
+                (tag, name, value) -> slot.write(tag, name, encoder.applyAsInt(value)), slot.layout.pathFirst, slot.layout.pathRem);
+        this.slot = slot;
+        this.encoder = encoder;
+    }
+
+    @Override
+    boolean isIn(CompoundTag parent) {
+        return slot.isIn(parent, name);
+    }
+
+    @Override
+    @Nullable Tag dataTag(CompoundTag parent) {
+        return slot.isIn(parent, name) ? IntTag.valueOf(slot.read(parent, name)) : null;
+    }
+
+    @Override
+    boolean strip(CompoundTag parent) {
+        return slot.clear(parent, name);
+    }
+
+    /**
+     * Retrieves the raw bits of this member from the provided stack without boxing.
+     *
+     * @param stack the item stack containing the NBT data to retrieve.
+     * @param fallback the value to return if no data was present.
+     *
+     * @return the bits stored in the stack, or the provided fallback if no data was present.
+     */
+    public int getBits(ItemStack stack, int fallback) {
+        var parent = getParentTag(stack);
+        return parent != null && slot.isIn(parent, name) ? slot.read(parent, name) : fallback;
+    }
+
+    /**
+     * Writes the raw bits of this member to the provided stack without boxing.
+     *
+     * @param stack the item stack to write the provided bits to.
+     * @param bits the bits to write, which must fit into this member's width.
+     *
+     * @throws IllegalArgumentException if the bits don't fit into this member's width.
+     */
+    public void setBits(ItemStack stack, int bits) {
+        slot.write(getOrCreateParentTag(stack), name, bits);
+        markWritten(stack);
+    }
+
+    /**
+     * Creates an NBT predicate from this member, which only compares the member's bits (including its presence bit) when matching.
+     * The expected tag only holds this member, so the predicate serializes like a vanilla one that expects every other member to be absent;
+     * the masked comparison only applies to predicates created in code.
+     *
+     * @param expectation the value that's expected in the predicate.
+     * @param adjustment an adjustment to apply to the expected packed tag, in case some bits should be expected differently.
+     * @param <P> the expected tag type, which is a long tag or a long array tag depending on the size of the layout.
+     *
+     * @return a new {@link NbtPredicate} that matches this member with the expected value.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <P extends Tag> NbtPredicate createPredicate(T expectation, @Nullable Consumer<P> adjustment) {
+        var root = new CompoundTag();
+        var parent = parentPath.resolveOrCreate(root);
+        slot.write(parent, name, encoder.applyAsInt(expectation));
+        if (adjustment != null) {
+            var tag = parent.get(name);
+            if (tag != null) adjustment.accept((P) tag);
+        }
+        long expected = slot.layout.readWord(parent, name, slot.word) & slot.mask();
+        return new MaskedPredicate(root, this, expected);
+    }
+
+    /**
+     * A predicate that only compares the bits of a single member of the packed tag.
+     */
+    private static final class MaskedPredicate extends NbtPredicate {
+        private final PackedFacet<?> facet;
+        private final long expected;
+
+        private MaskedPredicate(CompoundTag root, PackedFacet<?> facet, long expected) {
+            super(root);
+            this.facet = facet;
+            this.expected = expected;
+        }
+
+        @Override
+        @Contract(pure = true)
+        public boolean matches(@Nullable Tag tag) {
+            // A missing tag never matches, just like a vanilla predicate that isn't ANY
+            if (!(tag instanceof CompoundTag root)) return false;
+            var parent = facet.parentPath.resolve(root);
+            if (parent == null) return false;
+            var slot = facet.slot;
+            return (slot.layout.readWord(parent, facet.name, slot.word) & slot.mask()) == expected;
+        }
+    }
+
+    private record Slot(PackedLayout layout, int word, int shift, int bits) {
+        private long valueMask() {
+            return (1L << bits) - 1;
+        }
+
+        private long presenceBit() {
+            return 1L << (shift + bits);
+        }
+
+        private long mask() {
+            return (valueMask() << shift) | presenceBit();
+        }
+
+        private boolean isIn(CompoundTag parent, String name) {
+            return (layout.readWord(parent, name, word) & presenceBit()) != 0;
+        }
+
+        private int read(CompoundTag parent, String name) {
+            return (int) ((layout.readWord(parent, name, word) >>> shift) & valueMask());
+        }
+
+        private void write(CompoundTag parent, String name, int value) {
+            if ((value & ~valueMask()) != 0) throw new IllegalArgumentException("Value " + value + " doesn't fit into " + bits + " packed bits");
+            long cleared = layout.readWord(parent, name, word) & ~mask();
+            layout.writeWord(parent, name, word, cleared | ((long) value << shift) | presenceBit());
+        }
+
+        private boolean clear(CompoundTag parent, String name) {
+            long current = layout.readWord(parent, name, word);
+            if ((current & presenceBit()) == 0) return false;
+            layout.writeWord(parent, name, word, current & ~mask());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.LongTag;
+import org.jetbrains.annotations.Contract;
+
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * The storage layout of a set of {@linkplain PackedFacet}s that share a single NBT tag.
+ * <p>
+ * Every member declares a fixed bit width, and is assigned the next free bits in declaration order. Layouts of up to 64 bits are
+ * stored in a {@link LongTag}, while larger ones use a {@link LongArrayTag}. Members never straddle two words.
+ * <pre>{@code
+ * static final PackedLayout STATE = PackedLayout.of("mymod", "state");
+ * static final PackedFacet<Boolean> SEALED = STATE.flag();
+ * static final PackedFacet<Integer> CHARGES = STATE.unsigned(4);
+ * static final PackedFacet<Mode> MODE = STATE.enumValue(Mode.class);
+ * }</pre>
+ * Since the layout is positional, new members must only ever be appended to keep existing data readable.
+ */
+public final class PackedLayout {
+    private static final int WORD_BITS = Long.SIZE;
+    final String pathFirst;
+    final String[] pathRem;
+    private int words;
+    private int nextBit;
+
+    private PackedLayout(String pathFirst, String[] pathRem) {
+        this.pathFirst = pathFirst;
+        this.pathRem = pathRem;
+    }
+
+    /**
+     * Constructs a new empty layout stored at the given path.
+     *
+     * @param pathFirst the first element in the path, exists to ensure at least one element is present in the path.
+     * @param pathRem the remaining elements in the path; the last element will become the name of the packed tag.
+     *
+     * @return a new packed layout.
+     */
+    @Contract(value = "_, _ -> new", pure = true)
+    public static PackedLayout of(String pathFirst, String... pathRem) {
+        return new PackedLayout(pathFirst, pathRem.clone());
+    }
+
+    /**
+     * Declares a boolean member, which takes up a single bit of value data.
+     *
+     * @return a new packed facet for boolean values.
+     */
+    @Contract("-> new")
+    public PackedFacet<Boolean> flag() {
+        return add(1, bits -> bits != 0, value -> value ? 1 : 0);
+    }
+
+    /**
+     * Declares an unsigned integer member.
+     *
+     * @param bits the number of value bits, between 1 and 31; the member can hold values from 0 up to {@code 2^bits - 1}.
+     *
+     * @return a new packed facet for small non-negative integers.
+     *
+     * @throws IllegalArgumentException if the bit width is out of range.
+     */
+    @Contract("_ -> new")
+    public PackedFacet<Integer> unsigned(int bits) {
+        if (bits < 1 || bits >= Integer.SIZE) throw new IllegalArgumentException("Packed integer width must be between 1 and 31 bits, got " + bits);
+        return add(bits, Integer::valueOf, Integer::intValue);
+    }
+
+    /**
+     * Declares an enum member, stored by ordinal and wide enough for every constant of the enum.
+     *
+     * @param type the enum class.
+     * @param <E> the enum type.
+     *
+     * @return a new packed facet for the enum's constants.
+     */
+    @Contract("_ -> new")
+    public <E extends Enum<E>> PackedFacet<E> enumValue(Class<E> type) {
+        var constants = type.getEnumConstants();
+        int bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(constants.length - 1));
+        return add(bits, ordinal -> ordinal < constants.length ? constants[ordinal] : null, Enum::ordinal);
+    }
+
+    /**
+     * Declares a custom member, which maps its values to and from small non-negative integers.
+     *
+     * @param bits the number of value bits, between 1 and 31.
+     * @param decoder the function that turns stored bits into a value, which may return null if the bits are invalid.
+     * @param encoder the function that turns a value into bits that fit into the given width.
+     * @param <T> the type of the member's values.
+     *
+     * @return a new packed facet of the given type.
+     *
+     * @throws IllegalArgumentException if the bit width is out of range.
+     */
+    @Contract("_, _, _ -> new")
+    public <T> PackedFacet<T> custom(int bits, IntFunction<T> decoder, ToIntFunction<T> encoder) {
+        if (bits < 1 || bits >= Integer.SIZE) throw new IllegalArgumentException("Packed member width must be between 1 and 31 bits, got " + bits);
+        return add(bits, decoder, encoder);
+    }
+
+    private synchronized <T> PackedFacet<T> add(int bits, IntFunction<T> decoder, ToIntFunction<T> encoder) {
+        int slotBits = bits + 1; // The extra bit marks the member as present
+        if (words == 0 || nextBit + slotBits > WORD_BITS) {
+            words++;
+            nextBit = 0;
+        }
+        var facet = new PackedFacet<>(this, words - 1, nextBit, bits, decoder, encoder);
+        nextBit += slotBits;
+        return facet;
+    }
+
+    /**
+     * @return the number of 64-bit words that this layout currently needs.
+     */
+    @Contract(pure = true)
+    public synchronized int words() {
+        return words;
+    }
+
+    long readWord(CompoundTag parent, String name, int word) {
+        var tag = parent.get(name);
+        if (tag instanceof LongTag single) return word == 0 ? single.getAsLong() : 0;
+        if (tag instanceof LongArrayTag array) {
+            var data = array.getAsLongArray();
+            return word < data.length ? data[word] : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Replaces a single word of the packed tag, removing the tag entirely once every member has been cleared.
+     * The tag is always replaced rather than modified, so that decoded values cached against the old tag are never served again.
+     */
+    void writeWord(CompoundTag parent, String name, int word, long value) {
+        var tag = parent.get(name);
+        int words = words();
+        if (words == 1 && !(tag instanceof LongArrayTag)) {
+            if (value == 0) {
+                parent.remove(name);
+            } else {
+                parent.putLong(name, value);
+            }
+            return;
+        }
+
+        var existing = tag instanceof LongArrayTag array ? array.getAsLongArray() : tag instanceof LongTag single ? new long[]{single.getAsLong()} : new long[0];
+        var data = new long[Math.max(words, existing.length)];
+        System.arraycopy(existing, 0, data, 0, existing.length);
+        data[word] = value;
+        for (long bits : data) {
+            if (bits != 0) {
+                parent.putLongArray(name, data);
+                return;
+            }
+        }
+        parent.remove(name);
+    }
+}
@@ -0,0 +1,199 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Contract;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static net.minecraft.nbt.Tag.*;
+
+/**
+ * Low-level access to the saved files of a world, shared by the offline facet tools.
+ * <p>
+ * A region file starts with a header of 1024 chunk locations followed by 1024 chunk timestamps. Each location holds the offset of
+ * the chunk in 4 KiB sectors and the number of sectors it spans, and each chunk starts with its length and compression type.
+ * Chunks that don't fit into 255 sectors are stored in a separate file next to the region.
+ */
+final class RegionFiles {
+    static final int SECTOR_BYTES = 4096;
+    static final int CHUNKS_PER_REGION = 1024;
+    static final int HEADER_BYTES = 2 * SECTOR_BYTES;
+    static final int CHUNK_HEADER_BYTES = 5;
+    static final int MAX_CHUNK_SECTORS = 255;
+    static final int EXTERNAL_FLAG = 0x80;
+    private static final int GZIP = 1;
+    private static final int ZLIB = 2;
+    private static final int UNCOMPRESSED = 3;
+
+    private RegionFiles() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Finds the terrain and entity region files of every dimension, and the compressed data files of the provided world:
+     * player data, saved data of every dimension, and the level file (which holds the singleplayer player).
+     * The payload store is left out, since its payloads are keyed by their hash and are handled by {@link FacetPayloadStore#compact}.
+     */
+    static void collect(Path world, Consumer<Path> regions, Consumer<Path> data) throws IOException {
+        if (!Files.isDirectory(world)) throw new NotDirectoryException(world.toString());
+        try (var files = Files.walk(world)) {
+            files.filter(Files::isRegularFile).sorted().forEach(file -> {
+                var name = file.getFileName().toString();
+                var dir = file.getParent().getFileName().toString();
+                if (name.endsWith(".mca") && (dir.equals("region") || dir.equals("entities"))) regions.accept(file);
+                else if (name.endsWith(".dat") && dir.equals("playerdata")) data.accept(file);
+                else if (name.endsWith(".dat") && dir.equals("data") && !name.equals(FacetPayloadStore.NAME + ".dat")) data.accept(file);
+                else if (name.equals("level.dat") && file.getParent().equals(world)) data.accept(file);
+            });
+        }
+    }
+
+    static MappedByteBuffer map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static boolean hasHeader(ByteBuffer region) {
+        // The game leaves behind empty region files, which don't even have a header
+        return region.capacity() >= HEADER_BYTES;
+    }
+
+    /**
+     * @return the byte offset of the chunk in the region, or 0 if the chunk wasn't generated.
+     */
+    @Contract(pure = true)
+    static int chunkOffset(ByteBuffer region, int index) {
+        // The header is only ever read with absolute positions, so a region can be shared by multiple threads
+        return (region.getInt(index * 4) >>> 8) * SECTOR_BYTES;
+    }
+
+    /**
+     * @return the stored bytes of the chunk at the provided offset, including its length and compression type.
+     */
+    static ByteBuffer rawChunk(ByteBuffer region, int offset) throws IOException {
+        if (offset + CHUNK_HEADER_BYTES > region.capacity()) throw new IOException("Chunk starts past the end of the file");
+        int length = region.getInt(offset);
+        if (length < 1 || offset + 4 + length > region.capacity()) throw new IOException("Chunk has an invalid length of " + length);
+        return region.slice(offset, 4 + length);
+    }
+
+    /**
+     * @return the compression type of the chunk at the provided offset, including the external flag.
+     */
+    static int compression(ByteBuffer region, int offset) {
+        return region.get(offset + 4) & 0xFF;
+    }
+
+    static CompoundTag readChunk(Path file, ByteBuffer region, int index) throws IOException {
+        var raw = rawChunk(region, chunkOffset(region, index));
+        int compression = compression(raw, 0);
+        InputStream in = (compression & EXTERNAL_FLAG) != 0
+                ? Files.newInputStream(externalChunk(file, index))
+                : new BufferInputStream(raw.slice(CHUNK_HEADER_BYTES, raw.capacity() - CHUNK_HEADER_BYTES));
+        try (var data = new DataInputStream(new BufferedInputStream(decompress(in, compression & ~EXTERNAL_FLAG)))) {
+            return NbtIo.read(data);
+        }
+    }
+
+    static CompoundTag readCompressed(ByteBuffer buffer) throws IOException {
+        return NbtIo.readCompressed(new BufferInputStream(buffer));
+    }
+
+    private static InputStream decompress(InputStream in, int compression) throws IOException {
+        return switch (compression) {
+            case GZIP -> new GZIPInputStream(in);
+            case ZLIB -> new InflaterInputStream(in);
+            case UNCOMPRESSED -> in;
+            default -> throw new IOException("Unknown compression type " + compression);
+        };
+    }
+
+    static byte[] compress(CompoundTag tag, int compression) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        OutputStream out = switch (compression) {
+            case GZIP -> new GZIPOutputStream(bytes);
+            case ZLIB -> new DeflaterOutputStream(bytes);
+            case UNCOMPRESSED -> bytes;
+            default -> throw new IOException("Unknown compression type " + compression);
+        };
+        try (var data = new DataOutputStream(out)) {
+            NbtIo.write(tag, data);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Path externalChunk(Path region, int index) throws IOException {
+        // Oversized chunks are stored next to their region as c.<x>.<z>.mcc, where r.<x>.<z>.mca is the region
+        var parts = region.getFileName().toString().split("\\.");
+        try {
+            int x = Integer.parseInt(parts[1]) * 32 + (index & 31);
+            int z = Integer.parseInt(parts[2]) * 32 + (index >> 5);
+            return region.resolveSibling("c." + x + "." + z + ".mcc");
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Can't locate external chunk " + index + " of unconventionally named region " + region, e);
+        }
+    }
+
+    /**
+     * Passes every compound that is shaped like a saved item stack to the visitor, including stacks nested inside of other stacks.
+     */
+    static void visitStacks(Tag tag, Consumer<CompoundTag> visitor) {
+        if (tag instanceof CompoundTag compound) {
+            if (compound.contains("id", TAG_STRING) && compound.contains("Count", TAG_ANY_NUMERIC)) visitor.accept(compound);
+            // Stacks are visited as well, since they can contain other stacks (such as shulker box contents)
+            for (var key : compound.getAllKeys()) visitStacks(compound.get(key), visitor);
+        } else if (tag instanceof ListTag list && (list.getElementType() == TAG_COMPOUND || list.getElementType() == TAG_LIST)) {
+            for (var element : list) visitStacks(element, visitor);
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            len = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
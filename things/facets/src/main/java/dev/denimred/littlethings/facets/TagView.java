@@ -0,0 +1,14 @@
+package dev.denimred.littlethings.facets;
+
+/**
+ * A write-through view over a facet's data tag, which facets bind to the stack or holder they read it from,
+ * so that changes made through the view are recorded the same as writes made through the facet.
+ * <p>
+ * Views that were never bound (such as ones read from a detached tag) don't report their changes.
+ */
+interface TagView {
+    /**
+     * Makes the view run the listener after every change that it makes to its tag, replacing any listener it was bound to before.
+     */
+    void bind(Runnable listener);
+}
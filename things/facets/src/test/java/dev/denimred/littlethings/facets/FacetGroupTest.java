@@ -0,0 +1,91 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.DetectedVersion;
+import net.minecraft.SharedConstants;
+import net.minecraft.advancements.critereon.NbtPredicate;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NotNullEverything
+class FacetGroupTest {
+    private static final IntFacet COUNT = Facets.intFacet("test", "group", "count");
+    private static final Facet<String> LABEL = Facets.stringFacet("test", "group", "nested", "label");
+    private static final FacetGroup GROUP = FacetGroup.of(COUNT, LABEL);
+
+    @BeforeAll
+    static void boostrap() {
+        SharedConstants.setVersion(DetectedVersion.BUILT_IN);
+        Bootstrap.bootStrap();
+    }
+
+    private static ItemStack freshStack() {
+        return new ItemStack(Items.STICK);
+    }
+
+    @Test
+    void sharedPrefix() {
+        ItemStack stack = freshStack();
+        try (var view = GROUP.bind(stack)) {
+            view.set(COUNT, 1);
+            view.set(LABEL, "label");
+        }
+        assertEquals(1, COUNT.get(stack));
+        assertEquals("label", LABEL.get(stack));
+        try (var view = GROUP.bind(stack)) {
+            assertTrue(view.isIn(COUNT));
+            assertEquals(1, view.get(COUNT));
+            assertEquals("label", view.getOr(LABEL, ""));
+        }
+    }
+
+    @Test
+    void nonMember() {
+        var view = GROUP.bind(freshStack());
+        var outsider = Facets.intFacet("test", "group", "outsider");
+        assertFalse(GROUP.contains(outsider));
+        assertThrowsExactly(IllegalArgumentException.class, () -> view.get(outsider));
+    }
+
+    @Test
+    void pruneOnClose() {
+        ItemStack stack = freshStack();
+        COUNT.set(stack, 1);
+        LABEL.set(stack, "label");
+        try (var view = GROUP.bind(stack)) {
+            view.remove(COUNT);
+            view.remove(LABEL);
+            assertNotNull(stack.getTag());
+        }
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void vanillaPredicate() {
+        ItemStack stack = freshStack();
+        try (var view = GROUP.bind(stack)) {
+            view.set(COUNT, 1);
+            view.set(LABEL, "label");
+        }
+        // Parents written through groups must stay plain compounds, since vanilla only matches compounds of the same class
+        var parent = stack.getTag().getCompound("test").getCompound("group");
+        assertSame(CompoundTag.class, parent.getClass());
+
+        var expected = new CompoundTag();
+        expected.putInt("count", 1);
+        var root = new CompoundTag();
+        root.put("test", new CompoundTag());
+        root.getCompound("test").put("group", expected);
+        var predicate = new NbtPredicate(root);
+        assertTrue(predicate.matches(stack));
+        assertTrue(predicate.matches(stack.copy()));
+        COUNT.set(stack, 2);
+        assertFalse(predicate.matches(stack));
+    }
+}
@@ -0,0 +1,75 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.DetectedVersion;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NotNullEverything
+class FacetIndexTest {
+    private static final IntFacet CHARGES = Facets.intFacet("test", "index", "charges");
+    private static final Facet<String> LABEL = Facets.stringFacet("test", "index", "label");
+
+    @BeforeAll
+    static void boostrap() {
+        SharedConstants.setVersion(DetectedVersion.BUILT_IN);
+        Bootstrap.bootStrap();
+    }
+
+    private static ItemStack freshStack() {
+        return new ItemStack(Items.STICK);
+    }
+
+    @Test
+    void aggregates() {
+        var container = new SimpleContainer(4);
+        var index = FacetIndex.of(container, CHARGES, LABEL);
+        assertFalse(index.contains(CHARGES));
+
+        ItemStack first = freshStack();
+        CHARGES.setInt(first, 3);
+        container.setItem(1, first);
+        ItemStack second = freshStack();
+        CHARGES.setInt(second, 4);
+        LABEL.set(second, "label");
+        container.setItem(3, second);
+        assertEquals(2, index.count(CHARGES));
+        assertEquals(7, index.sum(CHARGES));
+        assertArrayEquals(new int[]{1, 3}, index.slots(CHARGES));
+        assertEquals(3, index.firstSlot(LABEL));
+
+        CHARGES.addAndGet(first, 5, 0);
+        assertEquals(12, index.sum(CHARGES));
+        assertArrayEquals(new int[]{3}, index.slotsWith(CHARGES, 4));
+
+        container.setItem(3, ItemStack.EMPTY);
+        assertEquals(8, index.sum(CHARGES));
+        assertEquals(-1, index.firstSlot(LABEL));
+    }
+
+    @Test
+    void directChanges() {
+        var container = new SimpleContainer(2);
+        var index = FacetIndex.of(container, LABEL);
+        ItemStack stack = freshStack();
+        container.setItem(0, stack);
+        assertFalse(index.contains(LABEL));
+        var data = new CompoundTag();
+        data.putString("label", "direct");
+        stack.getOrCreateTagElement("test").put("index", data);
+        assertFalse(index.contains(LABEL));
+        index.slotChanged(0);
+        assertTrue(index.contains(LABEL));
+        stack.removeTagKey("test");
+        index.invalidate();
+        assertFalse(index.contains(LABEL));
+    }
+}
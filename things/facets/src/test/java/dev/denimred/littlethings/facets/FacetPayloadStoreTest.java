@@ -0,0 +1,135 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static dev.denimred.littlethings.facets.TestWorlds.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@NotNullEverything
+class FacetPayloadStoreTest {
+    private static final DeduplicatedFacet<CompoundTag> PAYLOAD = Facets.deduplicatedTagFacet("test", "payload");
+    private static final DeduplicatedFacet<CompoundTag> CAPTURED = Facets.deduplicatedTagFacet("test", "captured");
+    private static final CompressedFacet<CompoundTag> COMPRESSED = Facets.compressedTagFacet("test", "compressed");
+
+    private static CompoundTag payload(String value) {
+        var payload = new CompoundTag();
+        payload.putString("value", value);
+        var tag = new CompoundTag();
+        PAYLOAD.write(PAYLOAD.parentPath.resolveOrCreate(tag), payload);
+        return tag;
+    }
+
+    private static <T> CompoundTag holding(Facet<T> facet, T value) {
+        var tag = new CompoundTag();
+        facet.write(facet.parentPath.resolveOrCreate(tag), value);
+        return tag;
+    }
+
+    private static CompoundTag items(CompoundTag... stacks) {
+        var items = new ListTag();
+        for (var stack : stacks) items.add(stack);
+        var tag = new CompoundTag();
+        tag.put("Items", items);
+        return tag;
+    }
+
+    private static Path writeStore(Path world, FacetPayloadStore store) throws IOException {
+        var file = world.resolve("data").resolve(FacetPayloadStore.NAME + ".dat");
+        Files.createDirectories(file.getParent());
+        var saved = new CompoundTag();
+        saved.put("data", store.save(new CompoundTag()));
+        try (var out = Files.newOutputStream(file)) {
+            NbtIo.writeCompressed(saved, out);
+        }
+        return file;
+    }
+
+    private static FacetPayloadStore readStore(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return FacetPayloadStore.load(NbtIo.readCompressed(in).getCompound("data"));
+        }
+    }
+
+    @AfterEach
+    void detach() {
+        FacetPayloadStore.detach();
+    }
+
+    @Test
+    void compact(@TempDir Path world) throws IOException {
+        var store = FacetPayloadStore.attach(new FacetPayloadStore());
+        var live = payload("live");
+        var player = payload("player");
+        payload("dead");
+        writeRegion(world.resolve("region").resolve("r.0.0.mca"), chunk(chest(stack(1, live), stack(1, live.copy())), ZLIB));
+        writePlayer(world, "player", player(stack(1, player)));
+        var file = writeStore(world, store);
+        assertEquals(3, store.size());
+
+        var result = FacetPayloadStore.compact(world);
+        assertEquals(3, result.entries());
+        assertEquals(2, result.retained());
+        assertEquals(3, result.references());
+        assertEquals(2, readStore(file).size());
+    }
+
+    @Test
+    void unreadable(@TempDir Path world) throws IOException {
+        var store = FacetPayloadStore.attach(new FacetPayloadStore());
+        payload("dead");
+        writeRegion(world.resolve("region").resolve("r.0.0.mca"), chunk(9, new byte[]{0}));
+        var file = writeStore(world, store);
+
+        assertThrows(IOException.class, () -> FacetPayloadStore.compact(world));
+        assertEquals(1, readStore(file).size());
+    }
+
+    @Test
+    void nested(@TempDir Path world) throws IOException {
+        var store = FacetPayloadStore.attach(new FacetPayloadStore());
+        // The inner payloads are only referenced from inside another payload, or from inside a compressed facet
+        var captured = holding(CAPTURED, items(stack(1, payload("inner"))));
+        var compressed = holding(COMPRESSED, items(stack(1, payload("compressed"))));
+        payload("dead");
+        writeRegion(world.resolve("region").resolve("r.0.0.mca"), chunk(chest(stack(1, captured), stack(1, compressed)), ZLIB));
+        var file = writeStore(world, store);
+        assertEquals(4, store.size());
+
+        var result = FacetPayloadStore.compact(world);
+        assertEquals(4, result.entries());
+        assertEquals(3, result.retained());
+        assertEquals(3, result.references());
+        assertEquals(3, readStore(file).size());
+    }
+
+    @Test
+    void session() {
+        var store = FacetPayloadStore.attach(new FacetPayloadStore());
+        var saved = payload("saved");
+        payload("intermediate");
+        FacetPayloadStore.markSaved(saved);
+        store.setDirty(false);
+        assertTrue(store.isDirty());
+
+        // Unsaved payloads are kept for a few saves, since stacks may be saved after the store
+        store.save(new CompoundTag());
+        store.save(new CompoundTag());
+        assertEquals(2, store.size());
+        var tag = store.save(new CompoundTag());
+        assertEquals(1, store.size());
+        assertEquals(1, tag.getList("Entries", Tag.TAG_COMPOUND).size());
+        store.setDirty(false);
+        assertFalse(store.isDirty());
+    }
+}
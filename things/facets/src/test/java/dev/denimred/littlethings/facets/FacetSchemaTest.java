@@ -0,0 +1,63 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.DetectedVersion;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Covers the accessors that the facets annotation processor generates from {@link TestSchema}.
+ */
+@NotNullEverything
+class FacetSchemaTest {
+    @BeforeAll
+    static void boostrap() {
+        SharedConstants.setVersion(DetectedVersion.BUILT_IN);
+        Bootstrap.bootStrap();
+    }
+
+    private static ItemStack freshStack() {
+        return new ItemStack(Items.STICK);
+    }
+
+    @Test
+    void accessors() {
+        ItemStack stack = freshStack();
+        assertFalse(TestSchemaFacets.hasCharges(stack));
+        assertEquals(-1, TestSchemaFacets.getCharges(stack, -1));
+        assertNull(TestSchemaFacets.getDisplayName(stack));
+        assertFalse(stack.hasTag());
+
+        TestSchemaFacets.setCharges(stack, 3);
+        TestSchemaFacets.setDisplayName(stack, "jug");
+        TestSchemaFacets.setSealed(stack, true);
+        assertTrue(TestSchemaFacets.hasCharges(stack));
+        assertEquals(3, TestSchemaFacets.getCharges(stack, -1));
+        assertEquals("jug", TestSchemaFacets.getDisplayName(stack));
+        assertTrue(TestSchemaFacets.getSealed(stack, false));
+        assertEquals("jug", stack.getTagElement("test").getCompound("schema").getString("display_name"));
+
+        TestSchemaFacets.removeCharges(stack);
+        TestSchemaFacets.removeDisplayName(stack);
+        TestSchemaFacets.removeSealed(stack);
+        assertFalse(TestSchemaFacets.hasCharges(stack));
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void constants() {
+        ItemStack stack = freshStack();
+        TestSchemaFacets.CHARGES.setInt(stack, 5);
+        assertEquals(5, TestSchemaFacets.getCharges(stack, -1));
+        TestSchemaFacets.setDisplayName(stack, "jug");
+        assertEquals("jug", TestSchemaFacets.DISPLAY_NAME.get(stack));
+        assertEquals("display_name", TestSchemaFacets.DISPLAY_NAME.name);
+        assertArrayEquals(new String[]{"test", "schema"}, TestSchemaFacets.SEALED.path);
+    }
+}
@@ -1,15 +1,26 @@
 package dev.denimred.littlethings.facets;
 
+import com.mojang.serialization.Codec;
 import dev.denimred.littlethings.annotations.NotNullEverything;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
 import net.minecraft.DetectedVersion;
 import net.minecraft.SharedConstants;
+import net.minecraft.advancements.critereon.NbtPredicate;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.*;
 import net.minecraft.server.Bootstrap;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -131,4 +142,669 @@ class FacetTest {
         facet.remove(stack);
         assertFalse(facet.isIn(stack));
     }
-}
\ No newline at end of file
+
+    @Test
+    void primitiveGetSet() {
+        IntFacet facet = Facets.intFacet("test", "facet");
+        ItemStack stack = freshStack();
+        assertEquals(5, facet.getInt(stack, 5));
+        facet.setInt(stack, 1);
+        assertEquals(1, facet.getInt(stack, 5));
+        assertEquals(1, facet.get(stack));
+        facet.set(stack, 2);
+        assertEquals(2, facet.getInt(stack, 5));
+    }
+
+    @Test
+    void primitiveAddAndGet() {
+        IntFacet facet = Facets.intFacet("test", "facet");
+        ItemStack stack = freshStack();
+        assertEquals(7, facet.addAndGet(stack, -1, 8));
+        assertEquals(9, facet.addAndGet(stack, 2, 8));
+        assertEquals(9, facet.getInt(stack, 0));
+    }
+
+    @Test
+    void primitiveWrongType() {
+        IntFacet facet = Facets.intFacet("test", "facet");
+        ItemStack stack = freshStack();
+        Facets.longFacet("test", "facet").setLong(stack, 1L);
+        assertFalse(facet.isIn(stack));
+        assertEquals(5, facet.getInt(stack, 5));
+    }
+
+    @Test
+    void booleanToggle() {
+        BooleanFacet facet = Facets.booleanFacet("test", "facet");
+        ItemStack stack = freshStack();
+        assertTrue(facet.toggle(stack, false));
+        assertTrue(facet.getBoolean(stack, false));
+        assertFalse(facet.toggle(stack, false));
+        assertEquals(false, facet.get(stack));
+    }
+
+    @Test
+    void decodeCache() {
+        Facet<ItemStack> facet = Facets.stackFacet("cached_stack_facet").withDecodeCache(8);
+        var cache = facet.getDecodeCache();
+        assertNotNull(cache);
+        ItemStack stack = freshStack();
+        facet.set(stack, new ItemStack(Items.DIAMOND));
+        var first = facet.get(stack);
+        assertSame(first, facet.get(stack));
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+
+        facet.set(stack, new ItemStack(Items.EMERALD));
+        assertEquals(Items.EMERALD, facet.getOrThrow(stack).getItem());
+
+        var raw = stack.getTagElement("cached_stack_facet");
+        assertNotNull(raw);
+        // Lookups don't look at the data, so changes made in-place by other code are only noticed once the cache is cleared
+        raw.putByte("Count", (byte) 2);
+        assertEquals(1, facet.getOrThrow(stack).getCount());
+        cache.clear();
+        assertEquals(2, facet.getOrThrow(stack).getCount());
+        assertThrowsExactly(IllegalStateException.class, () -> facet.withDecodeCache(8));
+    }
+
+    @Test
+    void stamps() {
+        FacetStamps.enable();
+        assertTrue(FacetStamps.isEnabled());
+        Facet<Integer> facet = intFacet();
+        ItemStack stack = freshStack();
+        assertEquals(FacetStamps.UNSTAMPED, FacetStamps.getStamp(stack));
+        assertFalse(FacetStamps.isDirty(stack));
+
+        facet.set(stack, 1);
+        long stamp = FacetStamps.getStamp(stack);
+        assertNotEquals(FacetStamps.UNSTAMPED, stamp);
+        assertEquals(Set.of(facet), FacetStamps.drainDirtyFacets(stack));
+        assertFalse(FacetStamps.isDirty(stack));
+        assertEquals(stamp, FacetStamps.getStamp(stack));
+
+        facet.remove(stack);
+        assertTrue(FacetStamps.getStamp(stack) > stamp);
+        assertTrue(FacetStamps.getDirtyFacets(stack).contains(facet));
+    }
+
+    @Test
+    void serverOnly() {
+        Facet<Integer> hidden = Facets.intFacet("test", "hidden").serverOnly();
+        Facet<Integer> projected = Facets.intFacet("test", "projected").serverOnly(i -> i > 0 ? 1 : null);
+        Facet<Integer> visible = Facets.intFacet("test", "visible");
+        ItemStack stack = freshStack();
+        visible.set(stack, 1);
+        assertSame(stack.getTag(), NetworkFacets.prepareForNetwork(stack.getTag()));
+
+        hidden.set(stack, 5);
+        projected.set(stack, 5);
+        var client = freshStack();
+        client.setTag(NetworkFacets.prepareForNetwork(stack.getTag()));
+        assertFalse(hidden.isIn(client));
+        assertEquals(1, projected.get(client));
+        assertEquals(1, visible.get(client));
+        assertEquals(5, hidden.get(stack));
+        assertEquals(5, projected.get(stack));
+    }
+
+    @Test
+    void serverOnlyMigrated() {
+        var facet = Facets.compressedTagFacet("test", "captured");
+        facet.withMigrations(FacetMigration.compressed());
+        facet.serverOnly(tag -> {
+            var projected = new CompoundTag();
+            projected.putString("id", tag.getString("id"));
+            return projected;
+        });
+        var payload = new CompoundTag();
+        payload.putString("id", "pig");
+        payload.putInt("health", 10);
+        ItemStack legacy = freshStack();
+        legacy.getOrCreateTagElement("test").put("captured", payload.copy());
+        var client = freshStack();
+        client.setTag(NetworkFacets.prepareForNetwork(legacy.getTag()));
+        assertEquals("pig", facet.get(client).getString("id"));
+        assertFalse(facet.get(client).contains("health"));
+        assertEquals(payload, legacy.getTagElement("test").getCompound("captured"));
+
+        assertEquals(payload, facet.get(legacy));
+        var first = NetworkFacets.prepareForNetwork(legacy.getTag());
+        long compressions = facet.getStats().compressions();
+        var second = NetworkFacets.prepareForNetwork(legacy.getTag());
+        assertSame(first.getCompound("test").get("captured"), second.getCompound("test").get("captured"));
+        assertEquals(compressions, facet.getStats().compressions());
+    }
+
+    @Test
+    void removeAll() {
+        Facet<Integer> first = Facets.intFacet("test", "nested", "first");
+        Facet<Integer> second = Facets.intFacet("test", "second");
+        Facet<Integer> kept = Facets.intFacet("kept");
+        ItemStack stack = freshStack();
+        first.set(stack, 1);
+        second.set(stack, 2);
+        kept.set(stack, 3);
+        Facets.removeAll(stack, first, second);
+        assertFalse(first.isIn(stack));
+        assertFalse(second.isIn(stack));
+        assertNull(stack.getTagElement("test"));
+        assertEquals(3, kept.get(stack));
+        Facets.removeAll(stack, kept);
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void primitiveList() {
+        Facet<IntList> facet = Facets.intListFacet("test", "ints");
+        ItemStack stack = freshStack();
+        facet.set(stack, IntList.of(3, 1, 2));
+        IntList view = facet.getOrThrow(stack);
+        view.set(0, 4);
+        view.sort(null);
+        assertArrayEquals(new int[]{1, 2, 4}, stack.getOrCreateTagElement("test").getIntArray("ints"));
+        view.add(1, 7);
+        view.removeInt(0);
+        assertEquals(IntList.of(7, 2, 4), facet.get(stack));
+        view.clear();
+        assertFalse(facet.isIn(stack));
+        assertNull(facet.get(stack));
+        assertFalse(stack.hasTag());
+        view.add(5);
+        assertEquals(IntList.of(5), facet.get(stack));
+    }
+
+    @Test
+    void primitiveListBits() {
+        Facet<DoubleList> facet = Facets.doubleListFacet("doubles");
+        ItemStack stack = freshStack();
+        facet.set(stack, DoubleList.of(2.5, -1.0, 0.5));
+        DoubleList view = facet.getOrThrow(stack);
+        view.sort(null);
+        assertEquals(DoubleList.of(-1.0, 0.5, 2.5), facet.get(stack));
+        view.set(1, 1.5);
+        assertEquals(1.5, facet.getOrThrow(stack).getDouble(1));
+        view.addAll(1, List.of(4.0, 5.0));
+        view.removeElements(0, 1);
+        assertEquals(DoubleList.of(4.0, 5.0, 1.5, 2.5), facet.get(stack));
+        view.size(2);
+        assertArrayEquals(new double[]{4.0, 5.0}, facet.getOrThrow(stack).toDoubleArray());
+        view.clear();
+        assertFalse(facet.isIn(stack));
+    }
+
+    @Test
+    void map() {
+        Facet<Map<String, Integer>> facet = Facets.mapFacet(Codec.STRING, Codec.INT, "test", "map");
+        ItemStack stack = freshStack();
+        facet.set(stack, Map.of("a", 1, "b", 2));
+        Map<String, Integer> view = facet.getOrThrow(stack);
+        assertEquals(2, view.get("b"));
+        assertEquals(2, view.put("b", 3));
+        assertNull(view.put("c", 4));
+        assertEquals(1, view.remove("a"));
+        assertNull(view.get(5));
+        assertEquals(Map.of("b", 3, "c", 4), facet.get(stack));
+        assertEquals(3, stack.getOrCreateTagElement("test").getCompound("map").getInt("b"));
+        view.entrySet().removeIf(entry -> entry.getValue() > 3);
+        assertEquals(Map.of("b", 3), facet.get(stack));
+
+        // Emptied maps leave no data behind, and the view puts its data back when it's filled again
+        view.remove("b");
+        assertFalse(facet.isIn(stack));
+        assertFalse(stack.hasTag());
+        view.put("d", 5);
+        assertEquals(Map.of("d", 5), facet.get(stack));
+        view.clear();
+        assertFalse(stack.hasTag());
+        facet.set(stack, Map.of());
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void packed() {
+        PackedLayout layout = PackedLayout.of("test", "packed");
+        PackedFacet<Boolean> flag = layout.flag();
+        PackedFacet<Integer> counter = layout.unsigned(4);
+        PackedFacet<Direction> direction = layout.enumValue(Direction.class);
+        ItemStack stack = freshStack();
+        assertFalse(flag.isIn(stack));
+        counter.set(stack, 15);
+        assertFalse(flag.isIn(stack));
+        assertTrue(counter.isIn(stack));
+        flag.set(stack, false);
+        direction.set(stack, Direction.WEST);
+        assertEquals(false, flag.get(stack));
+        assertEquals(15, counter.get(stack));
+        assertEquals(Direction.WEST, direction.get(stack));
+        assertThrows(IllegalArgumentException.class, () -> counter.set(stack, 16));
+        assertEquals(Tag.TAG_LONG, stack.getOrCreateTagElement("test").getTagType("packed"));
+        // Predicates only compare the bits of their own member
+        var predicate = counter.createPredicate(15);
+        assertTrue(predicate.matches(stack));
+        flag.set(stack, true);
+        assertTrue(predicate.matches(stack));
+        counter.set(stack, 3);
+        assertFalse(predicate.matches(stack));
+        Facets.removeAll(stack, flag, counter, direction);
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void packedServerOnly() {
+        PackedLayout layout = PackedLayout.of("test", "packedServerOnly");
+        PackedFacet<Integer> hidden = layout.unsigned(4);
+        PackedFacet<Integer> projected = layout.unsigned(4);
+        PackedFacet<Integer> visible = layout.unsigned(4);
+        hidden.serverOnly();
+        projected.serverOnly(i -> i > 0 ? 1 : null);
+        ItemStack stack = freshStack();
+        hidden.set(stack, 5);
+        projected.set(stack, 6);
+        visible.set(stack, 7);
+        var client = freshStack();
+        client.setTag(NetworkFacets.prepareForNetwork(stack.getTag()));
+        assertFalse(hidden.isIn(client));
+        assertEquals(1, projected.get(client));
+        assertEquals(7, visible.get(client));
+        assertEquals(5, hidden.get(stack));
+        assertEquals(6, projected.get(stack));
+    }
+
+    @Test
+    void packedWide() {
+        PackedLayout layout = PackedLayout.of("packed");
+        PackedFacet<Integer> first = layout.unsigned(31);
+        PackedFacet<Integer> second = layout.unsigned(31);
+        PackedFacet<Integer> third = layout.unsigned(31);
+        ItemStack stack = freshStack();
+        third.setBits(stack, 3);
+        assertEquals(2, layout.words());
+        assertEquals(Tag.TAG_LONG_ARRAY, stack.getOrCreateTag().getTagType("packed"));
+        assertEquals(3, third.getBits(stack, -1));
+        assertEquals(-1, first.getBits(stack, -1));
+        second.remove(stack);
+        assertTrue(third.isIn(stack));
+        third.remove(stack);
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void transactionCommit() {
+        Facet<Integer> first = Facets.intFacet("test", "nested", "first");
+        Facet<Integer> second = Facets.intFacet("test", "second");
+        ItemStack stack = freshStack();
+        second.set(stack, 1);
+        try (var tx = FacetTransaction.begin(stack)) {
+            tx.set(first, 5);
+            assertTrue(tx.modify(second, i -> i + 1));
+            assertEquals(5, tx.get(first));
+            assertFalse(first.isIn(stack));
+            tx.commit();
+        }
+        assertEquals(5, first.get(stack));
+        assertEquals(2, second.get(stack));
+        try (var tx = FacetTransaction.begin(stack)) {
+            tx.remove(first).remove(second).commit();
+        }
+        assertFalse(stack.hasTag());
+    }
+
+    @Test
+    void transactionRollback() {
+        Facet<IntList> list = Facets.intListFacet("test", "list");
+        Facet<Integer> facet = intFacet();
+        ItemStack stack = freshStack();
+        list.set(stack, IntList.of(1, 2));
+        facet.set(stack, 1);
+        try (var tx = FacetTransaction.begin(stack)) {
+            tx.set(facet, 2);
+            tx.mutate(list, l -> l.add(3));
+            assertEquals(IntList.of(1, 2, 3), list.get(stack));
+        }
+        assertEquals(IntList.of(1, 2), list.get(stack));
+        assertEquals(1, facet.get(stack));
+
+        Facet<String> failing = new Facet<>(Tag.TAG_STRING, (tag, name) -> tag.getString(name), (tag, name, value) -> {
+            throw new IllegalStateException();
+        }, "test", "failing");
+        var tx = FacetTransaction.begin(stack);
+        tx.set(facet, 3).set(failing, "value");
+        assertThrows(IllegalStateException.class, tx::commit);
+        assertEquals(1, facet.get(stack));
+        assertThrows(IllegalStateException.class, tx::rollback);
+    }
+
+    @Test
+    void createPredicate() {
+        Facet<Integer> facet = intFacet();
+        Facet<List<String>> list = Facets.stringListFacet("test", "list");
+        Map<NbtPredicate, NbtPredicate> predicates = Map.of(
+                facet.createPredicate(5), vanillaPredicate("test", "facet", IntTag.valueOf(5)),
+                list.createPredicate(List.of("b")), vanillaPredicate("test", "list", listTag("b")),
+                list.createPredicate(List.of()), vanillaPredicate("test", null, null));
+        ItemStack stack = freshStack();
+        for (int step = 0; step < 5; step++) {
+            switch (step) {
+                case 1 -> facet.set(stack, 5);
+                case 2 -> list.set(stack, List.of("a", "b"));
+                case 3 -> list.set(stack, List.of("a"));
+                case 4 -> facet.set(stack, 6);
+            }
+            for (var entry : predicates.entrySet()) {
+                assertEquals(entry.getValue().matches(stack), entry.getKey().matches(stack), "step " + step);
+            }
+        }
+    }
+
+    private static NbtPredicate vanillaPredicate(String parent, @Nullable String name, @Nullable Tag leaf) {
+        var parentTag = new CompoundTag();
+        if (name != null && leaf != null) parentTag.put(name, leaf);
+        var root = new CompoundTag();
+        root.put(parent, parentTag);
+        return new NbtPredicate(root);
+    }
+
+    private static ListTag listTag(String... values) {
+        var tag = new ListTag();
+        for (String value : values) tag.add(StringTag.valueOf(value));
+        return tag;
+    }
+
+    @Test
+    void migrations() {
+        var calls = new int[1];
+        LongFacet facet = Facets.longFacet("test", "migrated");
+        facet.withMigrations(FacetMigration.movedFrom("legacy"), FacetMigration.converted(tag -> tag instanceof IntTag i ? LongTag.valueOf(i.getAsInt()) : null), (f, root) -> {
+            calls[0]++;
+            return false;
+        });
+        assertEquals(3, facet.getDataVersion());
+        ItemStack stack = freshStack();
+        stack.getOrCreateTag().putInt("legacy", 7);
+        assertEquals(7L, facet.get(stack));
+        assertFalse(stack.getOrCreateTag().contains("legacy"));
+        assertEquals(7L, facet.getLong(stack, 0));
+        assertEquals(1, calls[0]);
+        assertThrows(IllegalStateException.class, () -> facet.withMigrations((f, root) -> false));
+
+        ItemStack current = freshStack();
+        facet.set(current, 3L);
+        assertEquals(3L, facet.get(current));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    void metrics() {
+        Facet<Integer> facet = Facets.codecFacet(Codec.INT, "test", "metrics");
+        ItemStack stack = freshStack();
+        facet.set(stack, 1);
+        FacetMetrics.setEnabled(true);
+        try {
+            facet.set(stack, 2);
+            assertEquals(2, facet.get(stack));
+            stack.getOrCreateTagElement("test").putString("metrics", "invalid");
+            assertNull(facet.get(stack));
+            facet.remove(stack);
+        } finally {
+            FacetMetrics.setEnabled(false);
+        }
+        facet.get(stack);
+        var stats = FacetMetrics.snapshot().stream().filter(s -> s.facet().equals("test:metrics")).findFirst().orElseThrow();
+        assertEquals(2, stats.reads());
+        assertEquals(1, stats.failedReads());
+        assertEquals(1, stats.writes());
+        assertEquals(1, stats.removes());
+        assertTrue(stats.decodeNanos() > 0);
+    }
+
+    @Test
+    void primitiveMetrics() {
+        IntFacet facet = Facets.intFacet("test", "primitiveMetrics");
+        BooleanFacet flag = Facets.booleanFacet("test", "primitiveFlag");
+        ItemStack stack = freshStack();
+        FacetMetrics.setEnabled(true);
+        try {
+            facet.getInt(stack, 0);
+            facet.setInt(stack, 1);
+            facet.addAndGet(stack, 2, 0);
+            facet.getInt(stack, 0);
+            flag.toggle(stack, false);
+        } finally {
+            FacetMetrics.setEnabled(false);
+        }
+        var stats = FacetMetrics.snapshot().stream().filter(s -> s.facet().equals("test:primitiveMetrics")).findFirst().orElseThrow();
+        assertEquals(1, stats.reads());
+        assertEquals(2, stats.writes());
+        assertEquals(0, stats.failedWrites());
+        assertEquals(3, facet.getInt(stack, 0));
+        assertTrue(flag.getBoolean(stack, false));
+    }
+
+    @Test
+    void snapshot() {
+        Facet<Integer> facet = intFacet();
+        Facet<List<String>> list = Facets.stringListFacet("test", "list");
+        Facet<String> missing = Facets.stringFacet("test", "missing");
+        ItemStack stack = freshStack();
+        facet.set(stack, 1);
+        list.set(stack, List.of("a", "b"));
+        var snapshot = FacetSnapshot.capture(stack, facet, list, missing);
+        facet.set(stack, 2);
+        list.getOrThrow(stack).add("c");
+        assertEquals(1, snapshot.get(facet));
+        assertEquals(List.of("a", "b"), snapshot.get(list));
+        assertFalse(snapshot.isIn(missing));
+        assertEquals("fallback", snapshot.getOr(missing, "fallback"));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.get(Facets.stringFacet("other")));
+
+        var snapshots = FacetSnapshot.captureAll(List.of(stack, freshStack()), facet);
+        assertEquals(2, snapshots.size());
+        assertEquals(2, snapshots.parallelStream().filter(s -> s.isIn(facet)).mapToInt(s -> s.getOrThrow(facet)).sum());
+    }
+
+    @Test
+    void equivalence() {
+        IntFacet owner = Facets.intFacet("test", "owner");
+        IntFacet cooldown = Facets.intFacet("test", "cooldown");
+        var equivalence = FacetEquivalence.of(owner);
+        ItemStack first = freshStack();
+        owner.setInt(first, 1);
+        cooldown.setInt(first, 20);
+        ItemStack second = freshStack();
+        owner.setInt(second, 1);
+        assertTrue(equivalence.equals(first, second));
+        assertEquals(equivalence.hashCode(first), equivalence.hashCode(second));
+        assertEquals(0, equivalence.compare(first, second));
+
+        owner.setInt(second, 2);
+        assertFalse(equivalence.equals(first, second));
+        assertTrue(equivalence.compare(first, second) < 0);
+        assertFalse(equivalence.equals(first, new ItemStack(Items.STONE)));
+        assertFalse(equivalence.equals(first, ItemStack.EMPTY));
+
+        var counts = new Object2IntOpenCustomHashMap<ItemStack>(equivalence);
+        for (var stack : List.of(first, second, first.copy())) counts.addTo(stack, 1);
+        assertEquals(2, counts.getInt(first));
+        assertEquals(1, counts.getInt(second));
+    }
+
+    @Test
+    void equivalenceViews() {
+        Facet<IntList> facet = Facets.intListFacet("test", "charges");
+        var equivalence = FacetEquivalence.of(facet);
+        ItemStack first = freshStack();
+        facet.set(first, IntList.of(1, 2));
+        ItemStack second = freshStack();
+        facet.set(second, IntList.of(1, 2));
+        assertTrue(equivalence.equals(first, second));
+        assertEquals(0, equivalence.compare(first, second));
+
+        // In-place updates through the view have to discard the cached hashes
+        facet.getOrThrow(second).set(1, 3);
+        assertFalse(equivalence.equals(first, second));
+        int order = equivalence.compare(first, second);
+        assertNotEquals(0, order);
+        assertEquals(-order, equivalence.compare(second, first));
+        facet.getOrThrow(second).set(1, 2);
+        assertTrue(equivalence.equals(first, second));
+        assertEquals(equivalence.hashCode(first), equivalence.hashCode(second));
+        assertEquals(0, equivalence.compare(first, second));
+    }
+
+    @Test
+    void holder() {
+        var changes = new int[1];
+        var holder = new FacetHolder() {
+            @Nullable CompoundTag data;
+
+            @Override
+            public @Nullable CompoundTag getFacetData() {
+                return data;
+            }
+
+            @Override
+            public void setFacetData(@Nullable CompoundTag data) {
+                this.data = data;
+            }
+
+            @Override
+            public void onFacetDataChanged() {
+                changes[0]++;
+            }
+        };
+        IntFacet facet = Facets.intFacet("test", "held");
+        assertFalse(facet.isIn(holder));
+        assertEquals(4, facet.getOr(holder, 4));
+
+        facet.set(holder, 7);
+        assertTrue(facet.isIn(holder));
+        assertEquals(7, facet.get(holder));
+        assertEquals(1, changes[0]);
+
+        var saved = new CompoundTag();
+        FacetHolders.save(holder, saved);
+        facet.set(holder, 8);
+        assertEquals(7, saved.getCompound(FacetHolders.KEY).getCompound("test").getInt("held"));
+        FacetHolders.load(holder, saved);
+        assertEquals(7, facet.get(holder));
+
+        facet.remove(holder);
+        assertNull(holder.data);
+        assertEquals(3, changes[0]);
+        FacetHolders.load(holder, new CompoundTag());
+        assertNull(holder.data);
+
+        Facet<Integer> hidden = Facets.intFacet("test", "heldHidden").serverOnly();
+        facet.set(holder, 7);
+        hidden.set(holder, 9);
+        var update = new CompoundTag();
+        FacetHolders.save(holder, update);
+        FacetHolders.saveForClient(holder, update);
+        var sent = update.getCompound(FacetHolders.KEY).getCompound("test");
+        assertEquals(7, sent.getInt("held"));
+        assertFalse(sent.contains("heldHidden"));
+        assertEquals(9, hidden.get(holder));
+        facet.remove(holder);
+        hidden.remove(holder);
+        FacetHolders.saveForClient(holder, update);
+        assertFalse(update.contains(FacetHolders.KEY));
+        assertEquals(7, changes[0]);
+
+        LongFacet migrated = Facets.longFacet("test", "heldMigrated");
+        migrated.withMigrations(FacetMigration.movedFrom("heldLegacy"));
+        holder.getOrCreateFacetData().putLong("heldLegacy", 5);
+        assertEquals(5L, migrated.get(holder));
+        assertFalse(holder.data.contains("heldLegacy"));
+        assertEquals(8, changes[0]);
+    }
+
+    @Test
+    void compressed() {
+        var facet = Facets.compressedTagFacet("test", "compressed");
+        var payload = new CompoundTag();
+        for (int i = 0; i < 64; i++) payload.putString("key" + i, "the same value over and over again");
+        ItemStack stack = freshStack();
+        facet.set(stack, payload);
+        assertEquals(Tag.TAG_BYTE_ARRAY, facet.getRawTag(stack).getId());
+        assertEquals(payload, facet.get(stack));
+        // Reads are served from the cache, but every read gets its own copy
+        var read = facet.getOrThrow(stack);
+        assertNotSame(read, facet.get(stack));
+        read.remove("key0");
+        assertEquals(payload, facet.get(stack));
+
+        var stats = facet.getStats();
+        assertEquals(1, stats.compressions());
+        assertEquals(1, stats.inflations());
+        assertTrue(stats.ratio() < 0.5);
+
+        facet.getParentTag(stack).putByteArray("compressed", new byte[]{1, 2, 3});
+        assertNull(facet.get(stack));
+        assertEquals(1, facet.getStats().failedInflations());
+
+        var migrated = Facets.compressedTagFacet("test", "uncompressed");
+        migrated.withMigrations(FacetMigration.compressed());
+        ItemStack legacy = freshStack();
+        legacy.getOrCreateTagElement("test").put("uncompressed", payload.copy());
+        assertEquals(payload, migrated.get(legacy));
+        assertEquals(Tag.TAG_BYTE_ARRAY, migrated.getRawTag(legacy).getId());
+    }
+
+    @Test
+    void deduplicated() {
+        var facet = Facets.deduplicatedTagFacet("test", "deduplicated");
+        var payload = new CompoundTag();
+        payload.putString("first", "value");
+        payload.putInt("second", 2);
+        var reordered = new CompoundTag();
+        reordered.putInt("second", 2);
+        reordered.putString("first", "value");
+
+        FacetPayloadStore.detach();
+        ItemStack inline = freshStack();
+        facet.set(inline, payload);
+        assertEquals(payload, facet.getRawTag(inline));
+        assertEquals(payload, facet.get(inline));
+
+        var store = FacetPayloadStore.attach(new FacetPayloadStore());
+        try {
+            ItemStack first = freshStack();
+            ItemStack second = freshStack();
+            facet.set(first, payload);
+            facet.set(second, reordered);
+            assertEquals(1, store.size());
+            assertTrue(store.isDirty());
+            assertEquals(facet.getRawTag(first), facet.getRawTag(second));
+            assertNotEquals(payload, facet.getRawTag(first));
+            assertEquals(payload, facet.get(first));
+            assertNotSame(facet.get(first), facet.get(first));
+            assertEquals(payload, facet.get(inline));
+
+            var sent = NetworkFacets.prepareForNetwork(first.getTag());
+            assertEquals(payload, sent.getCompound("test").get("deduplicated"));
+            assertNotEquals(payload, facet.getRawTag(first));
+
+            var loaded = FacetPayloadStore.load(store.save(new CompoundTag()));
+            assertEquals(1, loaded.size());
+
+            // References can't be resolved without the store
+            FacetPayloadStore.detach();
+            assertNull(facet.get(second));
+        } finally {
+            FacetPayloadStore.detach();
+        }
+    }
+
+    @Test
+    void keys() {
+        var dynamic = new String(new char[]{'t', 'e', 's', 't'});
+        var facet = Facets.intFacet(dynamic, new StringBuilder("interned").toString());
+        assertSame("test", facet.path[0]);
+        assertSame("interned", facet.name);
+        assertSame("interned", FacetKeys.canonicalize(new String("interned")));
+        var unknown = new String("not a facet key");
+        assertSame(unknown, FacetKeys.canonicalize(unknown));
+    }
+}
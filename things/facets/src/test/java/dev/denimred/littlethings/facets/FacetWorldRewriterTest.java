@@ -0,0 +1,138 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.nbt.CompoundTag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static dev.denimred.littlethings.facets.RegionFiles.EXTERNAL_FLAG;
+import static dev.denimred.littlethings.facets.RegionFiles.MAX_CHUNK_SECTORS;
+import static dev.denimred.littlethings.facets.RegionFiles.SECTOR_BYTES;
+import static dev.denimred.littlethings.facets.TestWorlds.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@NotNullEverything
+class FacetWorldRewriterTest {
+    private static final IntFacet CHARGES = Facets.intFacet("test", "rewrite", "charges");
+    private static final Facet<String> LABEL = Facets.stringFacet("test", "rewrite", "label");
+
+    private static CompoundTag legacy(int charges) {
+        var old = new CompoundTag();
+        old.putInt("oldCharges", charges);
+        var tag = new CompoundTag();
+        tag.put("legacy", old);
+        return tag;
+    }
+
+    private static CompoundTag labeled(String label) {
+        var tag = new CompoundTag();
+        LABEL.write(LABEL.parentPath.resolveOrCreate(tag), label);
+        return tag;
+    }
+
+    private static FacetWorldRewriter rewriter() {
+        return FacetWorldRewriter.create().apply(CHARGES, FacetMigration.movedFrom("legacy", "oldCharges")).drop(LABEL).withParallelism(2);
+    }
+
+    @Test
+    void rewrite(@TempDir Path world) throws IOException {
+        var region = world.resolve("region").resolve("r.0.0.mca");
+        writeRegion(region,
+                chunk(chest(stack(1, legacy(4)), stack(1, labeled("label"))), ZLIB),
+                chunk(chest(stack(1, new CompoundTag())), GZIP));
+        var untouched = world.resolve("region").resolve("r.1.0.mca");
+        writeRegion(untouched, chunk(chest(stack(1, new CompoundTag())), ZLIB));
+        var modified = Files.getLastModifiedTime(untouched);
+        writePlayer(world, "player", player(stack(1, legacy(2))));
+        writeLevel(world, player(stack(1, legacy(6))));
+        writeSavedData(world, "storage", chest(stack(1, labeled("stored"))));
+
+        var result = rewriter().rewrite(world);
+        assertEquals(5, result.files());
+        assertEquals(4, result.rewrittenFiles());
+        assertEquals(3, result.chunks());
+        assertEquals(1, result.rewrittenChunks());
+        assertEquals(5, result.stacks());
+        assertEquals(0, result.failures());
+        assertEquals(modified, Files.getLastModifiedTime(untouched));
+
+        var report = FacetWorldScanner.of(CHARGES, LABEL).scan(world);
+        assertEquals(0, report.failures());
+        assertEquals(7, report.stacks());
+        assertEquals(Map.of("4", 1L, "2", 1L, "6", 1L), report.facets().get(0).commonValues());
+        assertEquals(0, report.facets().get(1).stacks());
+        // Moved data leaves no empty compounds behind, and the dropped label leaves no item data at all
+        var chunk = RegionFiles.readChunk(region, RegionFiles.map(region), 0);
+        var items = chunk.getList("block_entities", 10).getCompound(0).getList("Items", 10);
+        assertFalse(items.getCompound(0).getCompound("tag").contains("legacy"));
+        assertFalse(items.getCompound(1).contains("tag"));
+
+        var again = rewriter().rewrite(world);
+        assertEquals(0, again.rewrittenFiles());
+        assertEquals(0, again.stacks());
+    }
+
+    @Test
+    void checkpoint(@TempDir Path world, @TempDir Path temp) throws IOException {
+        var checkpoint = temp.resolve("rewrite.checkpoint");
+        writeRegion(world.resolve("region").resolve("r.0.0.mca"), chunk(chest(stack(1, legacy(4))), ZLIB));
+        var broken = world.resolve("region").resolve("r.1.0.mca");
+        writeRegion(broken, chunk(chest(stack(1, legacy(5))), ZLIB), chunk(9, new byte[]{0}));
+        writeLevel(world, player(stack(1, legacy(6))));
+
+        var first = rewriter().withCheckpoint(checkpoint).rewrite(world);
+        assertEquals(2, first.rewrittenFiles());
+        assertEquals(1, first.failures());
+        assertEquals(Set.of("level.dat", "region/r.0.0.mca"), Set.copyOf(Files.readAllLines(checkpoint)));
+
+        writeRegion(broken, chunk(chest(stack(1, legacy(5))), ZLIB));
+        var second = rewriter().withCheckpoint(checkpoint).rewrite(world);
+        assertEquals(1, second.files());
+        assertEquals(2, second.skipped());
+        assertEquals(1, second.rewrittenFiles());
+        assertEquals(0, second.failures());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void externalChunks(@TempDir Path world) throws IOException {
+        // Random filler can't be compressed, so the chunk stays too large for the region after it's rewritten
+        var filler = new byte[MAX_CHUNK_SECTORS * SECTOR_BYTES];
+        new Random(0).nextBytes(filler);
+        var large = chest(stack(1, legacy(3)));
+        large.putByteArray("filler", filler);
+        var region = world.resolve("region").resolve("r.0.0.mca");
+        var external = RegionFiles.externalChunk(region, 0);
+        Files.createDirectories(region.getParent());
+        Files.write(external, RegionFiles.compress(large, ZLIB));
+        byte[] original = Files.readAllBytes(external);
+        writeRegion(region, chunk(ZLIB | EXTERNAL_FLAG, new byte[0]), chunk(9, new byte[]{0}));
+
+        var failed = rewriter().rewrite(world);
+        assertEquals(1, failed.failures());
+        assertEquals(0, failed.rewrittenFiles());
+        // The region was left untouched, so its external chunk must be as well
+        assertArrayEquals(original, Files.readAllBytes(external));
+        assertFalse(Files.exists(external.resolveSibling(external.getFileName() + ".tmp")));
+
+        writeRegion(region, chunk(ZLIB | EXTERNAL_FLAG, new byte[0]));
+        var result = rewriter().rewrite(world);
+        assertEquals(0, result.failures());
+        assertEquals(1, result.rewrittenChunks());
+        var items = RegionFiles.readChunk(region, RegionFiles.map(region), 0).getList("block_entities", 10).getCompound(0).getList("Items", 10);
+        assertEquals(3, items.getCompound(0).getCompound("tag").getCompound("test").getCompound("rewrite").getInt("charges"));
+        assertFalse(Files.exists(external.resolveSibling(external.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void noTransformations(@TempDir Path world) {
+        assertThrows(IllegalStateException.class, () -> FacetWorldRewriter.create().rewrite(world));
+    }
+}
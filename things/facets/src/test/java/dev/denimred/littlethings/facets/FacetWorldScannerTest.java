@@ -0,0 +1,72 @@
+package dev.denimred.littlethings.facets;
+
+import dev.denimred.littlethings.annotations.NotNullEverything;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static dev.denimred.littlethings.facets.TestWorlds.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@NotNullEverything
+class FacetWorldScannerTest {
+    private static final IntFacet CHARGES = Facets.intFacet("test", "scan", "charges");
+    private static final Facet<String> LABEL = Facets.stringFacet("test", "scan", "label");
+
+    private static CompoundTag charged(int charges) {
+        var tag = new CompoundTag();
+        CHARGES.write(CHARGES.parentPath.resolveOrCreate(tag), charges);
+        return tag;
+    }
+
+    @Test
+    void scan(@TempDir Path world) throws IOException {
+        writeRegion(world.resolve("region").resolve("r.0.0.mca"),
+                chunk(chest(stack(3, charged(5))), ZLIB),
+                chunk(chest(stack(1, charged(9))), GZIP),
+                chunk(9, new byte[]{0}));
+
+        var labeled = charged(5);
+        LABEL.write(LABEL.parentPath.resolveOrCreate(labeled), "label");
+        var shulkerItems = new ListTag();
+        shulkerItems.add(stack(1, charged(7)));
+        var shulker = new CompoundTag();
+        shulker.put("Items", shulkerItems);
+        var shulkerTag = new CompoundTag();
+        shulkerTag.put("BlockEntityTag", shulker);
+        writePlayer(world, "player", player(stack(1, labeled), stack(2, shulkerTag)));
+        // Empty regions are skipped rather than counted as failures
+        Files.createDirectories(world.resolve("entities"));
+        Files.createFile(world.resolve("entities").resolve("r.1.0.mca"));
+
+        var report = FacetWorldScanner.of(CHARGES, LABEL).withParallelism(2).scan(world);
+        assertEquals(3, report.files());
+        assertEquals(2, report.chunks());
+        assertEquals(5, report.stacks());
+        assertEquals(1, report.failures());
+
+        var charges = report.facets().get(0);
+        assertEquals("test.scan:charges", charges.facet());
+        assertEquals(4, charges.stacks());
+        assertEquals(6, charges.items());
+        assertEquals(5, charges.values().getMin());
+        assertEquals(9, charges.values().getMax());
+        assertEquals(Map.of("5", 2L, "7", 1L, "9", 1L), charges.commonValues());
+
+        var label = report.facets().get(1);
+        assertEquals(1, label.stacks());
+        assertEquals(5, label.sizes().getMax());
+        assertEquals(Map.of("label", 1L), label.commonValues());
+    }
+
+    @Test
+    void notADirectory(@TempDir Path world) {
+        assertThrows(IOException.class, () -> FacetWorldScanner.of(CHARGES).scan(world.resolve("missing")));
+    }
+}
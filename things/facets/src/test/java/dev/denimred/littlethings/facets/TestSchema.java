@@ -0,0 +1,11 @@
+package dev.denimred.littlethings.facets;
+
+@FacetSchema({"test", "schema"})
+interface TestSchema {
+    int charges();
+
+    @FacetSchema.Key("display_name")
+    String displayName();
+
+    boolean sealed();
+}
@@ -0,0 +1,104 @@
+package dev.denimred.littlethings.facets;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Builds minimal world saves for the offline facet tools.
+ */
+final class TestWorlds {
+    static final int GZIP = 1;
+    static final int ZLIB = 2;
+
+    private TestWorlds() {
+        throw new AssertionError();
+    }
+
+    static CompoundTag stack(int count, CompoundTag tag) {
+        var stack = new CompoundTag();
+        stack.putString("id", "minecraft:stick");
+        stack.putByte("Count", (byte) count);
+        stack.put("tag", tag);
+        return stack;
+    }
+
+    static CompoundTag chest(CompoundTag... stacks) {
+        var items = new ListTag();
+        for (var stack : stacks) items.add(stack);
+        var chest = new CompoundTag();
+        chest.putString("id", "minecraft:chest");
+        chest.put("Items", items);
+        var blockEntities = new ListTag();
+        blockEntities.add(chest);
+        var chunk = new CompoundTag();
+        chunk.put("block_entities", blockEntities);
+        return chunk;
+    }
+
+    static CompoundTag player(CompoundTag... stacks) {
+        var inventory = new ListTag();
+        for (var stack : stacks) inventory.add(stack);
+        var player = new CompoundTag();
+        player.put("Inventory", inventory);
+        return player;
+    }
+
+    static byte[] chunk(CompoundTag tag, int compression) throws IOException {
+        return chunk(compression, RegionFiles.compress(tag, compression));
+    }
+
+    static byte[] chunk(int compression, byte[] data) {
+        return ByteBuffer.allocate(data.length + 5).putInt(data.length + 1).put((byte) compression).put(data).array();
+    }
+
+    static void writeRegion(Path file, byte[]... chunks) throws IOException {
+        var sectors = new ByteArrayOutputStream();
+        var header = ByteBuffer.allocate(RegionFiles.HEADER_BYTES);
+        int sector = 2;
+        for (int i = 0; i < chunks.length; i++) {
+            int count = (chunks[i].length + 4095) / 4096;
+            header.putInt(i * 4, (sector << 8) | count);
+            var padded = new byte[count * 4096];
+            System.arraycopy(chunks[i], 0, padded, 0, chunks[i].length);
+            sectors.write(padded);
+            sector += count;
+        }
+        Files.createDirectories(file.getParent());
+        try (var out = Files.newOutputStream(file)) {
+            out.write(header.array());
+            out.write(sectors.toByteArray());
+        }
+    }
+
+    static void writePlayer(Path world, String name, CompoundTag player) throws IOException {
+        writeData(world.resolve("playerdata").resolve(name + ".dat"), player);
+    }
+
+    static void writeLevel(Path world, CompoundTag player) throws IOException {
+        var data = new CompoundTag();
+        data.put("Player", player);
+        var level = new CompoundTag();
+        level.put("Data", data);
+        writeData(world.resolve("level.dat"), level);
+    }
+
+    static void writeSavedData(Path world, String name, CompoundTag data) throws IOException {
+        var saved = new CompoundTag();
+        saved.put("data", data);
+        writeData(world.resolve("data").resolve(name + ".dat"), saved);
+    }
+
+    private static void writeData(Path file, CompoundTag tag) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (var out = Files.newOutputStream(file)) {
+            NbtIo.writeCompressed(tag, out);
+        }
+    }
+}
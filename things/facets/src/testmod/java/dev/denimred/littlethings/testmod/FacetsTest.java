@@ -1,7 +1,11 @@
 package dev.denimred.littlethings.testmod;
 
 import dev.denimred.littlethings.annotations.Resource;
+import dev.denimred.littlethings.facets.FacetMetricsCommand;
+import dev.denimred.littlethings.facets.FacetPayloadStore;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v1.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.core.Registry;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.Item;
@@ -13,7 +17,11 @@ public final class FacetsTest implements ModInitializer {
     public static final PotionJugItem POTION_JUG = item("potion_jug", new PotionJugItem());
 
     @Override
-    public void onInitialize() {}
+    public void onInitialize() {
+        CommandRegistrationCallback.EVENT.register((dispatcher, dedicated) -> FacetMetricsCommand.register(dispatcher));
+        ServerLifecycleEvents.SERVER_STARTED.register(FacetPayloadStore::attach);
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> FacetPayloadStore.detach());
+    }
 
     public static ResourceLocation res(@Resource.Path String path) {
         return new ResourceLocation(ID, path);
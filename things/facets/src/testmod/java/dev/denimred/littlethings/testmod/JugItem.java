@@ -32,7 +32,9 @@ public class JugItem extends BottleItem {
 
         level.playSound(player, player.getX(), player.getY(), player.getZ(), SoundEvents.BOTTLE_FILL, SoundSource.NEUTRAL, 1.0F, 1.0F);
         level.gameEvent(player, GameEvent.FLUID_PICKUP, pos);
-        var potion = turnBottleIntoItem(stack, player, FacetsTest.POTION_JUG.getDefaultInstance());
+        var filled = FacetsTest.POTION_JUG.getDefaultInstance();
+        JugSchemaFacets.setFilledAt(filled, level.getGameTime());
+        var potion = turnBottleIntoItem(stack, player, filled);
         return InteractionResultHolder.sidedSuccess(potion, level.isClientSide());
     }
 }
@@ -0,0 +1,9 @@
+package dev.denimred.littlethings.testmod;
+
+import dev.denimred.littlethings.facets.FacetSchema;
+
+@FacetSchema({"testmod", "jug"})
+interface JugSchema {
+    @FacetSchema.Key("filled_at")
+    long filledAt();
+}
@@ -2,7 +2,10 @@ package dev.denimred.littlethings.testmod;
 
 import com.google.gson.JsonParseException;
 import dev.denimred.littlethings.facets.Facet;
+import dev.denimred.littlethings.facets.FacetHolder;
+import dev.denimred.littlethings.facets.FacetMigration;
 import dev.denimred.littlethings.facets.Facets;
+import dev.denimred.littlethings.facets.IntFacet;
 import net.minecraft.ChatFormatting;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.Tag;
@@ -24,7 +27,12 @@ import java.util.Optional;
 public final class MobYoinkerItem extends Item {
     private static final String CUSTOM_NAME = "CustomName";
 
-    public final Facet<CompoundTag> yoinked = Facets.tagFacet(FacetsTest.ID, "yoinked");
+    // Whole entities are big, so they're kept compressed; stacks from before compression are migrated when accessed.
+    // This isn't server-only, since creative clients send stacks back as they see them, which would lose the captured entity
+    public final Facet<CompoundTag> yoinked = Facets.compressedTagFacet(FacetsTest.ID, "yoinked")
+            .withMigrations(FacetMigration.compressed());
+    // Stored on the entity itself, so it travels along with the rest of the entity's data while yoinked
+    public final IntFacet timesYoinked = Facets.intFacet(FacetsTest.ID, "times_yoinked");
 
     public MobYoinkerItem() {
         super(new Properties().stacksTo(1).tab(CreativeModeTab.TAB_TOOLS).rarity(Rarity.UNCOMMON));
@@ -61,6 +69,7 @@ public final class MobYoinkerItem extends Item {
         if (yoinked.isIn(stack) || entity.isDeadOrDying()) return InteractionResult.FAIL;
         if (entity.level.isClientSide) return InteractionResult.SUCCESS;
 
+        if (entity instanceof FacetHolder holder) timesYoinked.set(holder, timesYoinked.getOr(holder, 0) + 1);
         var entityData = new CompoundTag();
         if (!entity.save(entityData)) return InteractionResult.FAIL;
 
@@ -1,7 +1,7 @@
 package dev.denimred.littlethings.testmod;
 
-import dev.denimred.littlethings.facets.Facet;
 import dev.denimred.littlethings.facets.Facets;
+import dev.denimred.littlethings.facets.IntFacet;
 import net.minecraft.advancements.CriteriaTriggers;
 import net.minecraft.core.NonNullList;
 import net.minecraft.core.Registry;
@@ -20,7 +20,7 @@ import net.minecraft.world.level.gameevent.GameEvent;
 
 public final class PotionJugItem extends PotionItem {
     public static final int MAX_CHARGES = 8;
-    public final Facet<Integer> charges = Facets.intFacet("Charges");
+    public final IntFacet charges = Facets.intFacet("Charges");
 
     public PotionJugItem() {
         super(new Properties().stacksTo(1).tab(CreativeModeTab.TAB_BREWING));
@@ -44,11 +44,11 @@ public final class PotionJugItem extends PotionItem {
         if (player != null) {
             player.awardStat(Stats.ITEM_USED.get(this));
             if (!player.getAbilities().instabuild) {
-                charges.set(stack, charges.getOr(stack, MAX_CHARGES) - 1);
+                charges.addAndGet(stack, -1, MAX_CHARGES);
             }
         }
 
-        return (player != null && player.getAbilities().instabuild) || charges.getOr(stack, 0) > 0 ? stack : new ItemStack(FacetsTest.GLASS_JUG);
+        return (player != null && player.getAbilities().instabuild) || charges.getInt(stack, 0) > 0 ? stack : new ItemStack(FacetsTest.GLASS_JUG);
     }
 
     @Override
@@ -62,7 +62,6 @@ public final class PotionJugItem extends PotionItem {
     }
 
     public float getVolume(ItemStack stack) {
-        var charge = charges.get(stack);
-        return charge != null ? (float) charge / MAX_CHARGES : 1f;
+        return (float) charges.getInt(stack, MAX_CHARGES) / MAX_CHARGES;
     }
 }
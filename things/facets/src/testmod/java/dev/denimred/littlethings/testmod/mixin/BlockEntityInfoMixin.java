@@ -0,0 +1,19 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetHolder;
+import dev.denimred.littlethings.facets.FacetHolders;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(targets = "net.minecraft.network.protocol.game.ClientboundLevelChunkPacketData$BlockEntityInfo")
+abstract class BlockEntityInfoMixin {
+    @Redirect(method = "create", at = @At(value = "INVOKE", target = "Lnet/minecraft/world/level/block/entity/BlockEntity;getUpdateTag()Lnet/minecraft/nbt/CompoundTag;"))
+    private static CompoundTag saveFacetDataForClient(BlockEntity blockEntity) {
+        var tag = blockEntity.getUpdateTag();
+        FacetHolders.saveForClient((FacetHolder) blockEntity, tag);
+        return tag;
+    }
+}
@@ -0,0 +1,48 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetHolder;
+import dev.denimred.littlethings.facets.FacetHolders;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(BlockEntity.class)
+abstract class BlockEntityMixin implements FacetHolder {
+    @Unique
+    private @Nullable CompoundTag facetData;
+
+    @Shadow
+    public abstract void setChanged();
+
+    @Override
+    public @Nullable CompoundTag getFacetData() {
+        return facetData;
+    }
+
+    @Override
+    public void setFacetData(@Nullable CompoundTag data) {
+        facetData = data;
+    }
+
+    @Override
+    public void onFacetDataChanged() {
+        setChanged();
+    }
+
+    @Inject(method = "saveWithoutMetadata", at = @At("RETURN"))
+    private void saveFacetData(CallbackInfoReturnable<CompoundTag> cir) {
+        FacetHolders.save(this, cir.getReturnValue());
+    }
+
+    @Inject(method = "load", at = @At("HEAD"))
+    private void loadFacetData(CompoundTag tag, CallbackInfo ci) {
+        FacetHolders.load(this, tag);
+    }
+}
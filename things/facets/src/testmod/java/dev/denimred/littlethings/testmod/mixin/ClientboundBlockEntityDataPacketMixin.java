@@ -0,0 +1,23 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetHolder;
+import dev.denimred.littlethings.facets.FacetHolders;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+import java.util.function.Function;
+
+@Mixin(ClientboundBlockEntityDataPacket.class)
+abstract class ClientboundBlockEntityDataPacketMixin {
+    @Redirect(method = "create(Lnet/minecraft/world/level/block/entity/BlockEntity;Ljava/util/function/Function;)Lnet/minecraft/network/protocol/game/ClientboundBlockEntityDataPacket;",
+            at = @At(value = "INVOKE", target = "Ljava/util/function/Function;apply(Ljava/lang/Object;)Ljava/lang/Object;"))
+    private static Object saveFacetDataForClient(Function<BlockEntity, CompoundTag> getter, Object blockEntity) {
+        var tag = getter.apply((BlockEntity) blockEntity);
+        FacetHolders.saveForClient((FacetHolder) blockEntity, tag);
+        return tag;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetKeys;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.io.DataInput;
+
+@Mixin(CompoundTag.class)
+abstract class CompoundTagMixin {
+    @Inject(method = "readNamedTagName", at = @At("RETURN"), cancellable = true)
+    private static void canonicalizeFacetKey(DataInput input, NbtAccounter accounter, CallbackInfoReturnable<String> cir) {
+        cir.setReturnValue(FacetKeys.canonicalize(cir.getReturnValue()));
+    }
+}
@@ -0,0 +1,39 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetHolder;
+import dev.denimred.littlethings.facets.FacetHolders;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.Entity;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(Entity.class)
+abstract class EntityMixin implements FacetHolder {
+    @Unique
+    private @Nullable CompoundTag facetData;
+
+    @Override
+    public @Nullable CompoundTag getFacetData() {
+        return facetData;
+    }
+
+    @Override
+    public void setFacetData(@Nullable CompoundTag data) {
+        facetData = data;
+    }
+
+    @Inject(method = "saveWithoutId", at = @At("RETURN"))
+    private void saveFacetData(CompoundTag tag, CallbackInfoReturnable<CompoundTag> cir) {
+        FacetHolders.save(this, tag);
+    }
+
+    @Inject(method = "load", at = @At("RETURN"))
+    private void loadFacetData(CompoundTag tag, CallbackInfo ci) {
+        FacetHolders.load(this, tag);
+    }
+}
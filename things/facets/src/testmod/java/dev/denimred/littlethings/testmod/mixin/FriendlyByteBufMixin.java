@@ -0,0 +1,17 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.NetworkFacets;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.ModifyArg;
+
+@Mixin(FriendlyByteBuf.class)
+abstract class FriendlyByteBufMixin {
+    @ModifyArg(method = "writeItem", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/FriendlyByteBuf;writeNbt(Lnet/minecraft/nbt/CompoundTag;)Lnet/minecraft/network/FriendlyByteBuf;"))
+    private @Nullable CompoundTag stripServerOnlyFacets(@Nullable CompoundTag tag) {
+        return NetworkFacets.prepareForNetwork(tag);
+    }
+}
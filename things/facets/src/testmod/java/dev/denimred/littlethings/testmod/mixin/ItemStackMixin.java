@@ -0,0 +1,17 @@
+package dev.denimred.littlethings.testmod.mixin;
+
+import dev.denimred.littlethings.facets.FacetPayloadStore;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(ItemStack.class)
+abstract class ItemStackMixin {
+    @Inject(method = "save", at = @At("RETURN"))
+    private void markPayloadsSaved(CompoundTag tag, CallbackInfoReturnable<CompoundTag> cir) {
+        FacetPayloadStore.markSaved(cir.getReturnValue());
+    }
+}